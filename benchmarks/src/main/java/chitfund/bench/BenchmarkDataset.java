@@ -0,0 +1,102 @@
+package chitfund.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Random;
+
+import chitfund.SchemaMigrations;
+
+// Generates a chitfund.db-shaped SQLite file for the database benchmarks. Files are
+// cached in java.io.tmpdir by size, since generating a million bids takes longer
+// than most benchmark runs; a file only appears once it has been fully written.
+final class BenchmarkDataset {
+    private static final long SEED = 42L;
+    // Part of the cache file name; bump it whenever the generated data changes
+    private static final int FORMAT = 2;
+
+    private BenchmarkDataset() {
+    }
+
+    static File get(int funds, int membersPerFund, int bidsPerFund) throws IOException, SQLException {
+        File file = new File(System.getProperty("java.io.tmpdir"),
+                "chitfund-bench-v" + FORMAT + "-" + funds + "x" + membersPerFund + "x" + bidsPerFund + ".db");
+        if (!file.exists()) {
+            File partial = new File(file.getPath() + ".tmp");
+            Files.deleteIfExists(partial.toPath());
+            generate(partial, funds, membersPerFund, bidsPerFund);
+            Files.move(partial.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        return file;
+    }
+
+    static String url(File file) {
+        return "jdbc:sqlite:" + file.getAbsolutePath();
+    }
+
+    static String fundId(int fund) {
+        return "F" + fund;
+    }
+
+    static String participantId(int fund, int member) {
+        return "P" + fund + "-" + member;
+    }
+
+    private static void generate(File file, int funds, int membersPerFund, int bidsPerFund) throws SQLException {
+        Random random = new Random(SEED);
+        try (Connection connection = DriverManager.getConnection(url(file))) {
+            SchemaMigrations.migrate(connection);
+            connection.setAutoCommit(false);
+            try (PreparedStatement fund = connection.prepareStatement(
+                    "INSERT INTO ChitFund (id, totalAmountPaise, numberOfMonths) VALUES (?, ?, ?)");
+                 PreparedStatement participant = connection.prepareStatement(
+                    "INSERT INTO Participant (id, name, amountReceivedPaise) VALUES (?, ?, 0)");
+                 PreparedStatement member = connection.prepareStatement(
+                    "INSERT INTO ChitFundParticipant (chitFundId, participantId) VALUES (?, ?)");
+                 PreparedStatement bid = connection.prepareStatement(
+                    "INSERT INTO Bid (chitFundId, participantId, bidAmountPaise) VALUES (?, ?, ?)")) {
+                for (int f = 0; f < funds; f++) {
+                    long totalAmount = 100_000_00L * (1 + random.nextInt(20));
+                    fund.setString(1, fundId(f));
+                    fund.setLong(2, totalAmount);
+                    fund.setInt(3, membersPerFund);
+                    fund.addBatch();
+
+                    for (int m = 0; m < membersPerFund; m++) {
+                        participant.setString(1, participantId(f, m));
+                        participant.setString(2, "Member " + f + "-" + m);
+                        participant.addBatch();
+                        member.setString(1, fundId(f));
+                        member.setString(2, participantId(f, m));
+                        member.addBatch();
+                    }
+
+                    for (int b = 0; b < bidsPerFund; b++) {
+                        bid.setString(1, fundId(f));
+                        bid.setString(2, participantId(f, random.nextInt(membersPerFund)));
+                        bid.setLong(3, Math.round(totalAmount * random.nextDouble() * 0.3));
+                        bid.addBatch();
+                    }
+
+                    if (f % 500 == 499) {
+                        fund.executeBatch();
+                        participant.executeBatch();
+                        member.executeBatch();
+                        bid.executeBatch();
+                        connection.commit();
+                    }
+                }
+                fund.executeBatch();
+                participant.executeBatch();
+                member.executeBatch();
+                bid.executeBatch();
+                connection.commit();
+            }
+        }
+    }
+}
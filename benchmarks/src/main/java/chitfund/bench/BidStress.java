@@ -0,0 +1,187 @@
+package chitfund.bench;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import chitfund.BidDesk;
+import chitfund.BidLedger;
+import chitfund.BidServer;
+import chitfund.ChitFundManagementSystem;
+import chitfund.ChitFundSystem;
+import chitfund.Participant;
+
+// Stress run for concurrent bidding. For each thread count it places bids through a
+// BidDesk, first with every thread on a fund of its own and then with all threads on
+// one shared fund, and checks that the ledgers and the journal hold every bid. A
+// last round sends bids over HTTP to a BidServer. Exits with status 1 if any bid was
+// lost.
+//
+//   java -cp benchmarks/target/benchmarks.jar chitfund.bench.BidStress [threads...]
+//
+// chitfund.stress.bids sets the bids per thread (default 200000) and
+// chitfund.stress.httpBids the bids per thread over HTTP (default 2000).
+public class BidStress {
+    private static final int MEMBERS = 20;
+
+    private static boolean failed;
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = args.length == 0 ? new int[] {1, 2, 4, 8} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            threadCounts[i] = Integer.parseInt(args[i]);
+        }
+        int bids = Integer.getInteger("chitfund.stress.bids", 200_000);
+        int httpBids = Integer.getInteger("chitfund.stress.httpBids", 2000);
+        System.out.println(Runtime.getRuntime().availableProcessors() + " processors, " + bids + " bids per thread");
+
+        // Warm up the bidding path before anything is measured
+        run(threadCounts[threadCounts.length - 1], bids / 4, false);
+
+        double base = 0;
+        for (int threads : threadCounts) {
+            double independent = run(threads, bids, false);
+            double shared = run(threads, bids, true);
+            if (base == 0) {
+                base = independent / threads;
+            }
+            System.out.printf("%3d threads: %,12.0f bids/s on separate funds (%.2fx of linear), %,12.0f bids/s on one fund%n",
+                    threads, independent, independent / (base * threads), shared);
+        }
+        for (int threads : threadCounts) {
+            System.out.printf("%3d threads: %,12.0f bids/s over HTTP%n", threads, runHttp(threads, httpBids));
+        }
+        System.out.println(failed ? "FAILED: bids were lost" : "No bids lost");
+        System.exit(failed ? 1 : 0);
+    }
+
+    // Returns bids per second
+    private static double run(int threads, int bidsPerThread, boolean shared) throws Exception {
+        ChitFundManagementSystem system = createFunds(shared ? 1 : threads);
+        LongAdder journaled = new LongAdder();
+        BidDesk desk = new BidDesk(system, BidDesk.DEFAULT_STRIPES,
+                (fund, participant, amountPaise, auctionMonth) -> journaled.increment());
+
+        List<Callable<Long>> bidders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String fundId = "F" + (shared ? 0 : t);
+            int seed = t;
+            bidders.add(() -> {
+                long sum = 0;
+                for (int i = 0; i < bidsPerThread; i++) {
+                    long amount = amountOf(seed, i);
+                    desk.placeBid(fundId, "P" + (i % MEMBERS), amount);
+                    sum += amount;
+                }
+                return sum;
+            });
+        }
+        long start = System.nanoTime();
+        long expectedSum = runAll(bidders);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long expectedBids = (long) threads * bidsPerThread;
+        long count = 0;
+        long sum = 0;
+        for (ChitFundSystem fund : system.getChitFunds()) {
+            BidLedger ledger = fund.getLedger();
+            count += ledger.count();
+            sum += ledger.sum();
+        }
+        check(count == expectedBids && journaled.sum() == expectedBids && sum == expectedSum,
+                threads + " threads" + (shared ? " on one fund" : "") + ": expected " + expectedBids +
+                " bids, ledgers hold " + count + ", journal " + journaled.sum());
+        return expectedBids / seconds;
+    }
+
+    private static double runHttp(int threads, int bidsPerThread) throws Exception {
+        ChitFundManagementSystem system = createFunds(threads);
+        BidDesk desk = new BidDesk(system, BidDesk.DEFAULT_STRIPES, BidDesk.NO_JOURNAL);
+        try (BidServer server = new BidServer(desk, new InetSocketAddress("127.0.0.1", 0), Math.max(4, threads))) {
+            URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/bids");
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            List<Callable<Long>> terminals = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                terminals.add(() -> {
+                    long accepted = 0;
+                    for (int i = 0; i < bidsPerThread; i++) {
+                        long amount = amountOf(seed, i);
+                        String form = "fund=F" + seed + "&participant=P" + (i % MEMBERS) +
+                                "&amount=" + amount / 100 + "." + String.format("%02d", amount % 100);
+                        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri)
+                                .header("Content-Type", "application/x-www-form-urlencoded")
+                                .POST(HttpRequest.BodyPublishers.ofString(form)).build(),
+                                HttpResponse.BodyHandlers.ofString());
+                        if (response.statusCode() == 201) {
+                            accepted++;
+                        } else {
+                            System.out.println(response.statusCode() + " " + response.body());
+                        }
+                    }
+                    return accepted;
+                });
+            }
+            long start = System.nanoTime();
+            long accepted = runAll(terminals);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long count = 0;
+            for (ChitFundSystem fund : system.getChitFunds()) {
+                count += fund.getLedger().count();
+            }
+            long expected = (long) threads * bidsPerThread;
+            check(accepted == expected && count == expected,
+                    threads + " HTTP terminals: sent " + expected + " bids, " + accepted + " accepted, ledgers hold " + count);
+            return expected / seconds;
+        }
+    }
+
+    private static ChitFundManagementSystem createFunds(int funds) {
+        ChitFundManagementSystem system = new ChitFundManagementSystem();
+        for (int f = 0; f < funds; f++) {
+            ChitFundSystem fund = new ChitFundSystem("F" + f, 100_000_00L, MEMBERS);
+            system.addChitFund(fund);
+            for (int m = 0; m < MEMBERS; m++) {
+                Participant participant = system.getParticipant("P" + m);
+                system.addParticipantToChitFund(fund.getChitFundId(),
+                        participant != null ? participant : new Participant("P" + m, "Member " + m));
+            }
+        }
+        return system;
+    }
+
+    // Runs every task on its own thread, started together; returns the sum of results
+    private static long runAll(List<Callable<Long>> tasks) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        try {
+            long total = 0;
+            for (Future<Long> result : pool.invokeAll(tasks)) {
+                total += result.get();
+            }
+            return total;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static long amountOf(int seed, int i) {
+        return 50_000_00L + (i * 7919L + seed * 104_729L) % 30_000_00L;
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) {
+            failed = true;
+            System.out.println("LOST BIDS: " + message);
+        }
+    }
+}
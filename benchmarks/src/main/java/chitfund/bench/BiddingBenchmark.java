@@ -0,0 +1,74 @@
+package chitfund.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chitfund.ChitFundSystem;
+import chitfund.Participant;
+
+// Bid insertion into a fund's bid ledger and lookup of the winning amount
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BiddingBenchmark {
+    // Bids already in the book when the measurement starts
+    @Param({"100", "100000"})
+    int openBids;
+
+    private Participant[] members;
+    private long[] amounts;
+    private ChitFundSystem fund;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void createBids() {
+        Random random = new Random(11);
+        members = new Participant[20];
+        for (int m = 0; m < members.length; m++) {
+            members[m] = new Participant("P" + m, "Member " + m);
+        }
+        amounts = new long[4096];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = random.nextInt(30_000) * 100L;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void fillOrderBook() {
+        fund = new ChitFundSystem("F0", 100_000_00L, members.length);
+        for (Participant member : members) {
+            fund.addParticipant(member);
+        }
+        for (int i = 0; i < openBids; i++) {
+            fund.addBid(members[i % members.length], amounts[i & (amounts.length - 1)]);
+        }
+    }
+
+    @Benchmark
+    public ChitFundSystem addBid() {
+        int i = cursor = (cursor + 1) & (amounts.length - 1);
+        fund.addBid(members[i % members.length], amounts[i]);
+        return fund;
+    }
+
+    @Benchmark
+    public long winningBid() {
+        return fund.getLedger().max();
+    }
+}
@@ -0,0 +1,68 @@
+package chitfund.bench;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import chitfund.ChitFundLoader;
+import chitfund.ChitFundManagementSystem;
+import chitfund.ReportEngine;
+
+// Startup load and the Display Information query against a generated database.
+// Each call processes the whole dataset, so these run as single-shot measurements.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class DatabaseBenchmark {
+    @Param("10000")
+    int funds;
+
+    @Param("20")
+    int membersPerFund;
+
+    @Param("100")
+    int bidsPerFund;
+
+    private Connection connection;
+
+    @Setup
+    public void openDatabase() throws Exception {
+        File file = BenchmarkDataset.get(funds, membersPerFund, bidsPerFund);
+        connection = DriverManager.getConnection(BenchmarkDataset.url(file));
+    }
+
+    @TearDown
+    public void closeDatabase() throws Exception {
+        connection.close();
+    }
+
+    @Benchmark
+    public ChitFundManagementSystem loadAll() throws Exception {
+        ChitFundManagementSystem system = new ChitFundManagementSystem();
+        new ChitFundLoader(connection, ChitFundLoader.DEFAULT_FETCH_SIZE).load(system);
+        return system;
+    }
+
+    @Benchmark
+    public int displayReport(Blackhole blackhole) throws Exception {
+        return new ReportEngine(connection, ReportEngine.DEFAULT_PAGE_LINES).render(blackhole::consume, () -> false);
+    }
+}
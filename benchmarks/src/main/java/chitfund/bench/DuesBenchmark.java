@@ -0,0 +1,82 @@
+package chitfund.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chitfund.InstallmentEngine;
+
+// The month-end dues run over a million memberships: three settled months per fund
+// and a mix of members paid up, behind and paid ahead. Works on a copy of the
+// generated database, since every run rewrites the schedule and the ledger.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DuesBenchmark {
+    @Param("50000")
+    int funds;
+
+    @Param("20")
+    int membersPerFund;
+
+    private File copy;
+    private Connection connection;
+    private InstallmentEngine engine;
+
+    @Setup
+    public void prepareDatabase() throws Exception {
+        File file = BenchmarkDataset.get(funds, membersPerFund, 0);
+        copy = File.createTempFile("chitfund-dues", ".db");
+        Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        connection = DriverManager.getConnection(BenchmarkDataset.url(copy));
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("UPDATE ChitFund SET currentMonth = 4");
+            stmt.execute("INSERT INTO Settlement " +
+                    "(chitFundId, month, participantId, amountPaise, dividendPerMemberPaise, settledAt) " +
+                    "SELECT f.id, k.month, 'P' || substr(f.id, 2) || '-' || k.month, " +
+                    "f.totalAmountPaise * (70 + 5 * k.month) / 100, 0, '2026-01-01T00:00:00Z' " +
+                    "FROM ChitFund f, (SELECT 1 AS month UNION ALL SELECT 2 UNION ALL SELECT 3) k");
+            // Members numbered 0-9 pay three installments, 10-14 one and the last five none
+            stmt.execute("INSERT INTO Payment (chitFundId, participantId, amountPaise, paidAt) " +
+                    "SELECT m.chitFundId, m.participantId, f.totalAmountPaise / f.numberOfMonths * " +
+                    "(CASE WHEN CAST(substr(m.participantId, instr(m.participantId, '-') + 1) AS INTEGER) < 10 " +
+                    "THEN 3 ELSE 1 END), '2026-01-02T00:00:00Z' " +
+                    "FROM ChitFundParticipant m JOIN ChitFund f ON f.id = m.chitFundId " +
+                    "WHERE CAST(substr(m.participantId, instr(m.participantId, '-') + 1) AS INTEGER) < 15");
+        }
+        connection.commit();
+        engine = new InstallmentEngine(InstallmentEngine.DEFAULT_COMMISSION_BASIS_POINTS);
+    }
+
+    @TearDown
+    public void removeCopy() throws Exception {
+        connection.close();
+        Files.deleteIfExists(copy.toPath());
+    }
+
+    @Benchmark
+    public InstallmentEngine.RunReport monthEnd() throws Exception {
+        return engine.run(connection);
+    }
+}
@@ -0,0 +1,69 @@
+package chitfund.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chitfund.BidEventLog;
+
+// Bid ingest through the event log, with the disk forced every syncEveryRecords
+// appends. Compare with the SQLite path, which commits through the persistence queue.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventLogBenchmark {
+    @Param({"1", "1000"})
+    int syncEveryRecords;
+
+    private final String[] funds = new String[100];
+    private final String[] members = new String[100];
+    private Path dir;
+    private BidEventLog log;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void openLog() throws IOException {
+        for (int i = 0; i < funds.length; i++) {
+            funds[i] = "F" + i;
+            members[i] = "P" + i + "-" + (i % 20);
+        }
+        dir = Files.createTempDirectory("chitfund-eventlog-bench");
+        System.setProperty("chitfund.eventlog.dir", dir.toString());
+        System.setProperty("chitfund.eventlog.syncEveryRecords", Integer.toString(syncEveryRecords));
+        log = BidEventLog.open(BidEventLog.Config.fromSystemProperties());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLog() throws IOException {
+        log.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long appendBid() throws IOException {
+        int i = cursor = (cursor + 1) % funds.length;
+        return log.appendBid(funds[i], members[i], 150_000 + i, 1);
+    }
+}
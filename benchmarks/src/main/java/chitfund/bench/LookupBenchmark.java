@@ -0,0 +1,78 @@
+package chitfund.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chitfund.ChitFundManagementSystem;
+import chitfund.ChitFundSystem;
+import chitfund.Participant;
+
+// Fund and participant lookups by ID on a fully populated in-memory model
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+    @Param("10000")
+    int funds;
+
+    @Param("20")
+    int membersPerFund;
+
+    private ChitFundManagementSystem system;
+    private String[] fundIds;
+    private String[] participantIds;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        system = new ChitFundManagementSystem();
+        for (int f = 0; f < funds; f++) {
+            ChitFundSystem fund = new ChitFundSystem(BenchmarkDataset.fundId(f), 100_000, membersPerFund);
+            system.addChitFund(fund);
+            for (int m = 0; m < membersPerFund; m++) {
+                fund.addParticipant(new Participant(BenchmarkDataset.participantId(f, m), "Member " + f + "-" + m));
+            }
+        }
+
+        // Pre-built random keys so the benchmark measures lookups, not string building
+        Random random = new Random(7);
+        fundIds = new String[4096];
+        participantIds = new String[fundIds.length];
+        for (int i = 0; i < fundIds.length; i++) {
+            int f = random.nextInt(funds);
+            fundIds[i] = BenchmarkDataset.fundId(f);
+            participantIds[i] = BenchmarkDataset.participantId(f, random.nextInt(membersPerFund));
+        }
+    }
+
+    @Benchmark
+    public ChitFundSystem findFund() {
+        return system.findFund(fundIds[next()]);
+    }
+
+    @Benchmark
+    public Participant findParticipant() {
+        int i = next();
+        return system.findParticipant(fundIds[i], participantIds[i]);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (fundIds.length - 1);
+        return cursor;
+    }
+}
@@ -0,0 +1,82 @@
+package chitfund.bench;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chitfund.ChitFundManagementSystem;
+import chitfund.Participant;
+
+// Autocomplete over participant IDs and names: top-10 completions of short prefixes,
+// on an index sorted at load and with participants added one at a time afterwards
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class SearchBenchmark {
+    private static final String[] FIRST = {"Anil", "Bhavna", "Chetan", "Deepa", "Farhan", "Gita", "Harish",
+            "Indira", "Jaya", "Kiran", "Lakshmi", "Mohan", "Nisha", "Prakash", "Rekha", "Suresh", "Usha", "Vijay"};
+    private static final String[] LAST = {"Bhatt", "Das", "Iyer", "Joshi", "Kumar", "Menon", "Nair", "Patel",
+            "Rao", "Reddy", "Shah", "Singh"};
+
+    @Param("1000000")
+    int participants;
+
+    private ChitFundManagementSystem system;
+    private String[] prefixes;
+    private int cursor;
+    private int added;
+
+    @Setup
+    public void setUp() {
+        system = new ChitFundManagementSystem();
+        Random random = new Random(7);
+        for (int i = 0; i < participants; i++) {
+            system.addParticipant(new Participant(BenchmarkDataset.participantId(i / 20, i % 20),
+                    FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)]));
+        }
+        system.compactSearch();
+
+        // What an operator has typed after one to four keystrokes
+        prefixes = new String[4096];
+        for (int i = 0; i < prefixes.length; i++) {
+            String key = random.nextBoolean()
+                    ? BenchmarkDataset.participantId(random.nextInt(participants / 20), random.nextInt(20))
+                    : FIRST[random.nextInt(FIRST.length)];
+            prefixes[i] = key.substring(0, 1 + random.nextInt(Math.min(4, key.length())));
+        }
+    }
+
+    @Benchmark
+    public List<Participant> complete() {
+        return system.searchParticipants(prefixes[next()], 10);
+    }
+
+    // Each query follows a new participant, so the pending keys are searched too
+    @Benchmark
+    public List<Participant> addThenComplete() {
+        int i = next();
+        added++;
+        system.addParticipant(new Participant("N" + added, FIRST[i % FIRST.length] + " " + added));
+        return system.searchParticipants(prefixes[i], 10);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (prefixes.length - 1);
+        return cursor;
+    }
+}
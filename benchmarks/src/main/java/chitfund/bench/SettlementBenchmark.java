@@ -0,0 +1,65 @@
+package chitfund.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chitfund.ChitFundSystem;
+import chitfund.Participant;
+import chitfund.SettlementResult;
+
+// distributeAmount on a fund whose bid ledger holds a month's worth of bids. The
+// ledger is refilled before every call since settling clears it.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettlementBenchmark {
+    @Param({"100", "10000"})
+    int openBids;
+
+    private Participant[] members;
+    private long[] amounts;
+    private ChitFundSystem fund;
+
+    @Setup(Level.Trial)
+    public void createFund() {
+        Random random = new Random(13);
+        members = new Participant[20];
+        fund = new ChitFundSystem("F0", 100_000_00L, Integer.MAX_VALUE);
+        for (int m = 0; m < members.length; m++) {
+            members[m] = new Participant("P" + m, "Member " + m);
+            fund.addParticipant(members[m]);
+        }
+        amounts = new long[openBids];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = random.nextInt(30_000) * 100L;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void openMonth() {
+        for (int i = 0; i < amounts.length; i++) {
+            fund.addBid(members[i % members.length], amounts[i]);
+        }
+    }
+
+    @Benchmark
+    public SettlementResult distributeAmount() {
+        return fund.distributeAmount();
+    }
+}
@@ -0,0 +1,46 @@
+import chitfund.BidEventLog;
+import chitfund.ConnectionManager;
+import chitfund.EventLogProjector;
+import chitfund.FundArchive;
+import chitfund.SchemaMigrations;
+
+// Moves chit funds that have run all their months, with their memberships, bids and
+// settlements, out of the live tables into the archive tables of chitfund.db, then
+// compacts the database file:
+//   archive [--no-vacuum]
+// --no-vacuum skips the compaction, which rewrites the whole file and needs free disk
+// space for a copy of it. Database and event log settings are the same chitfund.*
+// system properties the UI uses; pending events are applied first. Don't run it while
+// the UI is open.
+public class archive {
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        boolean vacuum = true;
+        for (String arg : args) {
+            if (arg.equals("--no-vacuum")) {
+                vacuum = false;
+            } else {
+                System.err.println("Usage: archive [--no-vacuum]");
+                System.exit(2);
+            }
+        }
+
+        try (ConnectionManager connections = new ConnectionManager(ConnectionManager.Config.fromSystemProperties())) {
+            SchemaMigrations.migrate(connections.getWriter().getConnection());
+            if (BidEventLog.isEnabled()) {
+                try (BidEventLog eventLog = BidEventLog.open(BidEventLog.Config.fromSystemProperties())) {
+                    System.out.println("Applied " + new EventLogProjector(eventLog).projectNow(connections.getWriter()) +
+                            " events from the event log");
+                }
+            }
+            FundArchive.ArchiveReport report = FundArchive.archiveCompleted(connections.getWriter().getConnection());
+            if (vacuum && report.getFunds() > 0) {
+                FundArchive.compact(connections.getWriter().getConnection(), report);
+            }
+            System.out.println(report);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
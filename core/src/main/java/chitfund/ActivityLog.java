@@ -0,0 +1,353 @@
+package chitfund;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Operator activity log: the newest entries in a fixed-size ring shown in a JList that
+// only renders visible rows. append() may be called from any thread; entries wait in
+// a queue and a Swing timer moves each burst into the ring in one update per frame.
+// Entries pushed out of the ring are written to chitfund-activity.log, which rotates
+// at a size limit, and the search box looks through both the files and the ring.
+public class ActivityLog extends JPanel implements AutoCloseable {
+    public static final class Config {
+        int capacity = 10_000;
+        int frameMillis = 16;
+        String dir = ".";
+        long spillBytes = 8L * 1024 * 1024;
+        // Rotated files kept besides the current one
+        int spillFiles = 5;
+        int maxSearchResults = 1000;
+
+        public static Config fromSystemProperties() {
+            Config config = new Config();
+            config.capacity = Integer.getInteger("chitfund.activity.capacity", config.capacity);
+            config.frameMillis = Integer.getInteger("chitfund.activity.frameMillis", config.frameMillis);
+            config.dir = System.getProperty("chitfund.activity.dir", config.dir);
+            config.spillBytes = Long.getLong("chitfund.activity.spillBytes", config.spillBytes);
+            config.spillFiles = Integer.getInteger("chitfund.activity.spillFiles", config.spillFiles);
+            config.maxSearchResults = Integer.getInteger("chitfund.activity.maxSearchResults", config.maxSearchResults);
+            return config;
+        }
+    }
+
+    static final String SPILL_FILE = "chitfund-activity.log";
+    private static final DateTimeFormatter SHOWN = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final DateTimeFormatter SPILLED = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private static final class Entry {
+        final long time;
+        final String message;
+
+        Entry(long time, String message) {
+            this.time = time;
+            this.message = message;
+        }
+    }
+
+    private final Config config;
+    private final Path spillFile;
+    private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final javax.swing.Timer frameTimer;
+    // Spilling and searching happen on this thread, in order
+    private final ExecutorService spiller;
+    private final RingModel model;
+    private final JList<String> list;
+    private final JScrollPane scrollPane;
+    private final JTextField searchField = new JTextField();
+    private final Metrics.Operation flushMetrics = Metrics.get().operation("activity.flush");
+
+    public ActivityLog(Config config, Font font, Color foreground) {
+        super(new BorderLayout(0, 2));
+        this.config = config;
+        this.spillFile = Paths.get(config.dir, SPILL_FILE);
+        this.model = new RingModel(Math.max(1, config.capacity));
+        this.spiller = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "chitfund-activity-spill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        frameTimer = new javax.swing.Timer(config.frameMillis, e -> flush());
+        frameTimer.setRepeats(false);
+
+        list = new JList<String>(model) {
+            @Override
+            public String getToolTipText(MouseEvent event) {
+                int row = locationToIndex(event.getPoint());
+                return row >= 0 && getCellBounds(row, row).contains(event.getPoint()) ? model.getElementAt(row) : null;
+            }
+        };
+        list.setFont(font);
+        list.setForeground(foreground);
+        // Fixed cell sizes keep JList from measuring every row; the list then takes the
+        // viewport's width
+        list.setFixedCellHeight(list.getFontMetrics(font).getHeight() + 2);
+        list.setFixedCellWidth(1);
+        list.setToolTipText("");
+        scrollPane = new JScrollPane(list);
+        scrollPane.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+
+        JPanel searchPanel = new JPanel(new BorderLayout(4, 0));
+        searchPanel.setOpaque(false);
+        searchPanel.add(new JLabel("Search log:"), BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        searchField.addActionListener(e -> search(searchField.getText()));
+
+        setOpaque(false);
+        add(searchPanel, BorderLayout.NORTH);
+        add(scrollPane, BorderLayout.CENTER);
+    }
+
+    // Safe from any thread; the entry shows up on the next frame. Multi-line text
+    // becomes one entry per line.
+    public void append(String text) {
+        long now = System.currentTimeMillis();
+        for (String line : text.split("\n")) {
+            if (!line.isEmpty()) {
+                pending.add(new Entry(now, line));
+            }
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(frameTimer::restart);
+        }
+    }
+
+    // Moves the pending entries into the ring: one model event per frame however many
+    // arrived
+    private void flush() {
+        long start = Metrics.start();
+        flushScheduled.set(false);
+        List<Entry> evicted = new ArrayList<>();
+        int added = 0;
+        Entry entry;
+        while ((entry = pending.poll()) != null) {
+            Entry old = model.push(entry);
+            if (old != null) {
+                evicted.add(old);
+            }
+            added++;
+        }
+        if (added == 0) {
+            return;
+        }
+        // Stay at the bottom if the operator was there, otherwise leave the view alone
+        JScrollBar bar = scrollPane.getVerticalScrollBar();
+        boolean following = bar.getValue() + bar.getVisibleAmount() >= bar.getMaximum() - list.getFixedCellHeight();
+        model.fireChanged(evicted.size(), added);
+        if (following) {
+            list.ensureIndexIsVisible(model.getSize() - 1);
+        }
+        if (!evicted.isEmpty()) {
+            spiller.execute(() -> spill(evicted));
+        }
+        flushMetrics.record(start);
+    }
+
+    private void spill(List<Entry> entries) {
+        try {
+            Files.createDirectories(spillFile.toAbsolutePath().getParent());
+            try (BufferedWriter out = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Entry entry : entries) {
+                    out.write(SPILLED.format(toLocal(entry.time)));
+                    out.write("  ");
+                    out.write(entry.message);
+                    out.newLine();
+                }
+            }
+            if (Files.size(spillFile) >= config.spillBytes) {
+                rotate();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // chitfund-activity.log becomes .1, .1 becomes .2 and so on; the oldest is dropped
+    private void rotate() throws IOException {
+        Files.deleteIfExists(rotated(config.spillFiles));
+        for (int i = config.spillFiles - 1; i >= 1; i--) {
+            if (Files.exists(rotated(i))) {
+                Files.move(rotated(i), rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (config.spillFiles > 0) {
+            Files.move(spillFile, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(spillFile);
+        }
+    }
+
+    private Path rotated(int generation) {
+        return spillFile.resolveSibling(SPILL_FILE + "." + generation);
+    }
+
+    // Case-insensitive search over the spilled files and the ring, newest matches kept.
+    // The ring is scanned here on the EDT; the files on the spill thread, after
+    // everything already evicted has been written.
+    private void search(String text) {
+        String needle = text.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            return;
+        }
+        flush();
+        List<String> recent = model.matching(needle);
+        spiller.execute(() -> {
+            ArrayDeque<String> matches = new ArrayDeque<>();
+            for (int i = config.spillFiles; i >= 0; i--) {
+                Path file = i == 0 ? spillFile : rotated(i);
+                if (!Files.exists(file)) {
+                    continue;
+                }
+                try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        if (line.toLowerCase(Locale.ROOT).contains(needle)) {
+                            keep(matches, line);
+                        }
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            for (String line : recent) {
+                keep(matches, line);
+            }
+            List<String> results = new ArrayList<>(matches);
+            SwingUtilities.invokeLater(() -> showResults(text.trim(), results));
+        });
+    }
+
+    private void keep(ArrayDeque<String> matches, String line) {
+        matches.addLast(line);
+        if (matches.size() > config.maxSearchResults) {
+            matches.removeFirst();
+        }
+    }
+
+    private void showResults(String text, List<String> results) {
+        JList<String> found = new JList<>(results.toArray(new String[0]));
+        found.setFont(list.getFont());
+        found.setFixedCellHeight(list.getFixedCellHeight());
+        JDialog dialog = new JDialog(SwingUtilities.getWindowAncestor(this),
+                results.size() + " entries matching \"" + text + "\"" +
+                (results.size() == config.maxSearchResults ? " (latest shown)" : ""));
+        dialog.add(new JScrollPane(found));
+        dialog.setSize(700, 400);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+        if (!results.isEmpty()) {
+            found.ensureIndexIsVisible(results.size() - 1);
+        }
+    }
+
+    // Writes whatever is still in the ring to the spill file so the whole session is on
+    // disk; call on the EDT when the window closes
+    @Override
+    public void close() {
+        frameTimer.stop();
+        flush();
+        List<Entry> remaining = model.entries();
+        spiller.execute(() -> spill(remaining));
+        spiller.shutdown();
+        try {
+            spiller.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    // Ring of the newest entries, oldest first. Rows are formatted only when JList asks
+    // for them, which it does for visible rows alone.
+    private static final class RingModel extends AbstractListModel<String> {
+        private final Entry[] entries;
+        private int head;
+        private int size;
+
+        RingModel(int capacity) {
+            entries = new Entry[capacity];
+        }
+
+        // Returns the entry pushed out, if the ring was full
+        Entry push(Entry entry) {
+            int slot = (head + size) % entries.length;
+            Entry old = null;
+            if (size == entries.length) {
+                old = entries[head];
+                head = (head + 1) % entries.length;
+            } else {
+                size++;
+            }
+            entries[slot] = entry;
+            return old;
+        }
+
+        void fireChanged(int removed, int added) {
+            if (added >= entries.length) {
+                fireContentsChanged(this, 0, size - 1);
+                return;
+            }
+            if (removed > 0) {
+                fireIntervalRemoved(this, 0, removed - 1);
+            }
+            fireIntervalAdded(this, size - added, size - 1);
+        }
+
+        List<String> matching(String needle) {
+            List<String> matches = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                Entry entry = entries[(head + i) % entries.length];
+                if (entry.message.toLowerCase(Locale.ROOT).contains(needle)) {
+                    matches.add(SPILLED.format(toLocal(entry.time)) + "  " + entry.message);
+                }
+            }
+            return matches;
+        }
+
+        List<Entry> entries() {
+            List<Entry> all = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                all.add(entries[(head + i) % entries.length]);
+            }
+            return all;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            Entry entry = entries[(head + index) % entries.length];
+            return SHOWN.format(toLocal(entry.time)) + "  " + entry.message;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package chitfund;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+// Settles auctions without any UI. Used by the batch entry point (settle) and shares
+// its SQL with the Swing UI so both save settlements the same way.
+public class AuctionEngine {
+    static final String UPDATE_AMOUNT_RECEIVED = "UPDATE Participant SET amountReceivedPaise = ? WHERE id = ?";
+    static final String UPDATE_CURRENT_MONTH = "UPDATE ChitFund SET currentMonth = ? WHERE id = ?";
+    static final String INSERT_SETTLEMENT = "INSERT INTO Settlement " +
+            "(chitFundId, month, participantId, amountPaise, dividendPerMemberPaise, settledAt) VALUES (?, ?, ?, ?, ?, ?)";
+    static final String INSERT_BID =
+            "INSERT INTO Bid (chitFundId, participantId, bidAmountPaise, auctionMonth) VALUES (?, ?, ?, ?)";
+
+    private final ChitFundManagementSystem system;
+
+    public AuctionEngine(ChitFundManagementSystem system) {
+        this.system = system;
+    }
+
+    // Returns null if the fund had no bids this month
+    public SettlementResult settle(String chitFundId) {
+        return system.conductBidding(chitFundId);
+    }
+
+    // Settles the open month of every fund whose auction is due, on the calling thread
+    public List<SettlementResult> settleAllDue() {
+        return new SettlementScheduler(1).run(system).getResults();
+    }
+
+    // Saves settlements, payouts and the next auction month of each fund in one transaction
+    public static void persist(Connection connection, List<SettlementResult> results) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement settlements = connection.prepareStatement(INSERT_SETTLEMENT);
+             PreparedStatement participants = connection.prepareStatement(UPDATE_AMOUNT_RECEIVED);
+             PreparedStatement funds = connection.prepareStatement(UPDATE_CURRENT_MONTH)) {
+            for (SettlementResult result : results) {
+                Object[] row = settlementRow(result);
+                for (int i = 0; i < row.length; i++) {
+                    settlements.setObject(i + 1, row[i]);
+                }
+                settlements.addBatch();
+                participants.setLong(1, result.getWinner().getAmountReceived());
+                participants.setString(2, result.getWinner().getParticipantId());
+                participants.addBatch();
+                funds.setInt(1, result.getChitFund().getCurrentMonth());
+                funds.setString(2, result.getChitFund().getChitFundId());
+                funds.addBatch();
+            }
+            settlements.executeBatch();
+            participants.executeBatch();
+            funds.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // The queued writes that save a bid placed at a BidDesk
+    static PersistenceQueue.Write bidWrite(ChitFundSystem fund, Participant participant, long amountPaise,
+                                           int auctionMonth) {
+        return PersistenceQueue.write(INSERT_BID, fund.getChitFundId(), participant.getParticipantId(),
+                amountPaise, auctionMonth);
+    }
+
+    // The queued writes that save a settlement made in memory: the winner's payout, the
+    // fund's next auction month and the settlement row, committed together
+    static PersistenceQueue.Write[] settlementWrites(SettlementResult result) {
+        return new PersistenceQueue.Write[] {
+                PersistenceQueue.write(UPDATE_AMOUNT_RECEIVED,
+                        result.getWinner().getAmountReceived(), result.getWinner().getParticipantId()),
+                PersistenceQueue.write(UPDATE_CURRENT_MONTH, result.getMonth() + 1,
+                        result.getChitFund().getChitFundId()),
+                PersistenceQueue.write(INSERT_SETTLEMENT, settlementRow(result))
+        };
+    }
+
+    // Parameters for INSERT_SETTLEMENT
+    static Object[] settlementRow(SettlementResult result) {
+        return new Object[] {
+                result.getChitFund().getChitFundId(), result.getMonth(), result.getWinner().getParticipantId(),
+                result.getAmount(), result.getDividendPerMember(), result.getSettledAt().toString()
+        };
+    }
+}
@@ -0,0 +1,237 @@
+package chitfund;
+
+import java.awt.Dimension;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+import javax.swing.JPopupMenu;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+// Text field that offers completions while the operator types. Typing restarts a
+// short timer; when it fires, the query is built on the EDT and run on a shared
+// search thread, and the results are shown in a popup below the field unless newer
+// typing has made them stale. Down and Up move through the list, Enter or a click
+// takes the selected entry and Escape closes it. With nothing selected, Enter acts as
+// usual, so a new ID can still be typed in full.
+public class AutocompleteField extends JTextField {
+    public static final int DEFAULT_LIMIT = 10;
+    static final int DEBOUNCE_MILLIS = 120;
+
+    // One thread for every field; a query that has been overtaken is skipped
+    private static final ExecutorService SEARCH = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "chitfund-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Called on the EDT with the text typed so far; reads whatever else it needs from
+    // the UI there and returns the search to run on the search thread
+    public interface Source {
+        Callable<List<Suggestion>> query(String prefix, int limit);
+    }
+
+    public static final class Suggestion {
+        private final String value;
+        private final String label;
+
+        public Suggestion(String value, String label) {
+            this.value = value;
+            this.label = label;
+        }
+
+        // What goes in the field when the suggestion is taken
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final Source source;
+    private final int limit;
+    private final Timer debounce;
+    private final AtomicInteger generation = new AtomicInteger();
+    private final DefaultListModel<Suggestion> suggestions = new DefaultListModel<>();
+    private final JList<Suggestion> list = new JList<>(suggestions);
+    private final JPopupMenu popup = new JPopupMenu();
+    private final Metrics.Operation metrics = Metrics.get().operation("search.complete");
+    // Set while the field's text is replaced by a taken suggestion
+    private boolean accepting;
+
+    public AutocompleteField(int columns, Source source) {
+        this(columns, source, DEFAULT_LIMIT);
+    }
+
+    public AutocompleteField(int columns, Source source, int limit) {
+        super(columns);
+        this.source = source;
+        this.limit = limit;
+        this.debounce = new Timer(DEBOUNCE_MILLIS, e -> search());
+        debounce.setRepeats(false);
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFocusable(false);
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = list.locationToIndex(e.getPoint());
+                if (index >= 0) {
+                    accept(suggestions.get(index));
+                }
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(list);
+        scrollPane.setBorder(null);
+        popup.add(scrollPane);
+        // Keeps the caret in the field while the popup is open
+        popup.setFocusable(false);
+
+        getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                textChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                textChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!popup.isVisible()) {
+                    return;
+                }
+                int selected = list.getSelectedIndex();
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN:
+                        select(Math.min(selected + 1, suggestions.size() - 1));
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_UP:
+                        select(Math.max(selected - 1, 0));
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ENTER:
+                        if (selected >= 0) {
+                            accept(suggestions.get(selected));
+                            e.consume();
+                        } else {
+                            hidePopup();
+                        }
+                        break;
+                    case KeyEvent.VK_ESCAPE:
+                        hidePopup();
+                        e.consume();
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
+        addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                debounce.stop();
+                hidePopup();
+            }
+        });
+    }
+
+    // Runs work on the search thread ahead of any query, such as sorting an index
+    public static void prepare(Runnable work) {
+        SEARCH.execute(work);
+    }
+
+    private void textChanged() {
+        if (!accepting) {
+            debounce.restart();
+        }
+    }
+
+    private void search() {
+        String prefix = getText().trim();
+        int current = generation.incrementAndGet();
+        if (prefix.isEmpty()) {
+            hidePopup();
+            return;
+        }
+        Callable<List<Suggestion>> query = source.query(prefix, limit);
+        SEARCH.execute(() -> {
+            if (generation.get() != current) {
+                return;
+            }
+            long start = Metrics.start();
+            try {
+                List<Suggestion> found = query.call();
+                metrics.record(start);
+                SwingUtilities.invokeLater(() -> show(current, found));
+            } catch (Exception e) {
+                metrics.recordError(start);
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void show(int current, List<Suggestion> found) {
+        if (generation.get() != current || !isShowing() || !hasFocus()) {
+            return;
+        }
+        suggestions.clear();
+        suggestions.addAll(found);
+        if (found.isEmpty()) {
+            hidePopup();
+            return;
+        }
+        list.clearSelection();
+        list.setVisibleRowCount(Math.min(found.size(), limit));
+        popup.setPopupSize(new Dimension(Math.max(getWidth(), list.getPreferredScrollableViewportSize().width + 8),
+                list.getPreferredScrollableViewportSize().height + 4));
+        popup.show(this, 0, getHeight());
+    }
+
+    private void select(int index) {
+        list.setSelectedIndex(index);
+        list.ensureIndexIsVisible(index);
+    }
+
+    private void accept(Suggestion suggestion) {
+        accepting = true;
+        try {
+            setText(suggestion.getValue());
+        } finally {
+            accepting = false;
+        }
+        hidePopup();
+    }
+
+    private void hidePopup() {
+        generation.incrementAndGet();
+        popup.setVisible(false);
+    }
+}
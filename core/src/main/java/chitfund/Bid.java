@@ -0,0 +1,20 @@
+package chitfund;
+
+public class Bid {
+    private Participant participant;
+    private long bidAmount;
+
+    public Bid(Participant participant, long bidAmount) {
+        this.participant = participant;
+        this.bidAmount = bidAmount;
+    }
+
+    public Participant getParticipant() {
+        return participant;
+    }
+
+    // Amount in paise
+    public long getBidAmount() {
+        return bidAmount;
+    }
+}
@@ -0,0 +1,177 @@
+package chitfund;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Thread-safe entry point for bidding. A ChitFundSystem is not thread-safe on its own,
+// so every fund is guarded by one of a fixed set of striped locks chosen by fund ID:
+// bids on different funds almost always take different locks and proceed in parallel,
+// while bids on the same fund are applied one at a time. Anything else that changes a
+// fund bidders can reach (adding members, settling) runs through withFund, and
+// withAllFunds pauses all bidding, e.g. to take a consistent snapshot.
+public class BidDesk {
+    public static final int DEFAULT_STRIPES = 64;
+
+    // Persists a bid before it is added to the model. It runs under the fund's lock, so
+    // bids on one fund reach it in the order the model applies them. A failure leaves
+    // the model unchanged.
+    public interface Journal {
+        void record(ChitFundSystem fund, Participant participant, long amountPaise, int auctionMonth)
+                throws IOException;
+    }
+
+    public static final Journal NO_JOURNAL = (fund, participant, amountPaise, auctionMonth) -> { };
+
+    private final ChitFundManagementSystem system;
+    private final Journal journal;
+    private final ReentrantLock[] stripes;
+    private final Metrics.Operation metrics = Metrics.get().operation("bidding.placeBid");
+
+    public BidDesk(ChitFundManagementSystem system, int stripes, Journal journal) {
+        this.system = system;
+        this.journal = journal;
+        // A power of two, so a stripe is picked with a mask
+        int count = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public ChitFundManagementSystem getSystem() {
+        return system;
+    }
+
+    public Receipt placeBid(String chitFundId, String participantId, long amountPaise) throws IOException {
+        ChitFundSystem fund = system.findFund(chitFundId);
+        if (fund == null) {
+            throw new IllegalArgumentException("Chit fund " + chitFundId + " not found");
+        }
+        long start = Metrics.start();
+        ReentrantLock lock = stripeOf(fund);
+        lock.lock();
+        try {
+            Participant participant = fund.findParticipant(participantId);
+            if (participant == null) {
+                throw new IllegalArgumentException("Participant " + participantId +
+                        " is not in chit fund " + chitFundId);
+            }
+            if (fund.isComplete()) {
+                throw new IllegalStateException("Chit fund " + chitFundId + " has run all its " +
+                        fund.getNumberOfMonths() + " months");
+            }
+            int month = fund.getCurrentMonth();
+            journal.record(fund, participant, amountPaise, month);
+            participant.makeBid(fund, amountPaise);
+            BidLedger ledger = fund.getLedger();
+            Receipt receipt = new Receipt(chitFundId, participantId, amountPaise, month,
+                    ledger.count(), ledger.winningRow() == ledger.count() - 1);
+            metrics.record(start);
+            return receipt;
+        } catch (IOException | RuntimeException e) {
+            metrics.recordError(start);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A fund's open month and running totals, read under its lock
+    public FundStats getStats(String chitFundId) {
+        ChitFundSystem fund = system.findFund(chitFundId);
+        if (fund == null) {
+            throw new IllegalArgumentException("Chit fund " + chitFundId + " not found");
+        }
+        ReentrantLock lock = stripeOf(fund);
+        lock.lock();
+        try {
+            return fund.getStats();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Runs work on a fund with its bidders held off
+    public <T> T withFund(ChitFundSystem fund, Callable<T> work) throws Exception {
+        ReentrantLock lock = stripeOf(fund);
+        lock.lock();
+        try {
+            return work.call();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Runs work with all bidding paused. Stripes are always taken in index order, so
+    // two callers can't deadlock.
+    public <T> T withAllFunds(Callable<T> work) throws Exception {
+        int locked = 0;
+        try {
+            for (; locked < stripes.length; locked++) {
+                stripes[locked].lock();
+            }
+            return work.call();
+        } finally {
+            while (locked > 0) {
+                stripes[--locked].unlock();
+            }
+        }
+    }
+
+    private ReentrantLock stripeOf(ChitFundSystem fund) {
+        int hash = fund.getChitFundId().hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    public static final class Receipt {
+        private final String chitFundId;
+        private final String participantId;
+        private final long amountPaise;
+        private final int auctionMonth;
+        private final int bids;
+        private final boolean leading;
+
+        Receipt(String chitFundId, String participantId, long amountPaise, int auctionMonth,
+                int bids, boolean leading) {
+            this.chitFundId = chitFundId;
+            this.participantId = participantId;
+            this.amountPaise = amountPaise;
+            this.auctionMonth = auctionMonth;
+            this.bids = bids;
+            this.leading = leading;
+        }
+
+        public String getChitFundId() {
+            return chitFundId;
+        }
+
+        public String getParticipantId() {
+            return participantId;
+        }
+
+        public long getAmountPaise() {
+            return amountPaise;
+        }
+
+        public int getAuctionMonth() {
+            return auctionMonth;
+        }
+
+        // Bids on the fund this month, including this one
+        public int getBids() {
+            return bids;
+        }
+
+        // Whether this bid is now the winning bid
+        public boolean isLeading() {
+            return leading;
+        }
+
+        @Override
+        public String toString() {
+            return "Bid of " + Money.format(amountPaise) + " by " + participantId + " on chit fund " + chitFundId +
+                    " for month " + auctionMonth + (leading ? " (leading)" : "");
+        }
+    }
+}
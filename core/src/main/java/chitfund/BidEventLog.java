@@ -0,0 +1,592 @@
+package chitfund;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Append-only log of bid and settlement events, used instead of SQLite as the write
+// path when chitfund.eventlog.dir is set. Events go into fixed-size segment files
+// that are memory-mapped, so an append is a memory copy; the mapped pages are
+// forced to disk every syncEveryRecords events and every syncIntervalMillis.
+// EventLogProjector applies the log to the SQLite tables in the background, and
+// compact() folds the bids of settled months into one summary record each.
+//
+// Record: payload length, CRC32 of the payload, then the payload: sequence number,
+// event type and the event's fields. The length is written last, and a record only
+// counts if its checksum matches and its sequence number is higher than the one
+// before, so a torn write at the tail is dropped on the next open.
+public class BidEventLog implements AutoCloseable {
+    public static final class Config {
+        String dir = "chitfund-events";
+        int segmentBytes = 64 * 1024 * 1024;
+        int syncEveryRecords = 1000;
+        long syncIntervalMillis = 50;
+
+        public static Config fromSystemProperties() {
+            Config config = new Config();
+            config.dir = System.getProperty("chitfund.eventlog.dir", config.dir);
+            config.segmentBytes = Integer.getInteger("chitfund.eventlog.segmentBytes", config.segmentBytes);
+            config.syncEveryRecords = Integer.getInteger("chitfund.eventlog.syncEveryRecords", config.syncEveryRecords);
+            config.syncIntervalMillis = Long.getLong("chitfund.eventlog.syncIntervalMillis", config.syncIntervalMillis);
+            return config;
+        }
+    }
+
+    public enum Type { BID, SETTLEMENT, MONTH_SUMMARY }
+
+    // One decoded record. Which fields are set depends on the type:
+    //   BID:           chitFundId, participantId, month, amountPaise
+    //   SETTLEMENT:    chitFundId, participantId, month, amountPaise, dividendPerMemberPaise,
+    //                  balancePaise (the winner's amountReceived afterwards), settledAt
+    //   MONTH_SUMMARY: chitFundId, month, bidCount, amountPaise (total bid), maxBidPaise
+    public static final class Event {
+        public final long sequence;
+        public final Type type;
+        public final String chitFundId;
+        public final String participantId;
+        public final int month;
+        public final long amountPaise;
+        public final long dividendPerMemberPaise;
+        public final long balancePaise;
+        public final Instant settledAt;
+        public final int bidCount;
+        public final long maxBidPaise;
+
+        Event(long sequence, Type type, String chitFundId, String participantId, int month, long amountPaise,
+              long dividendPerMemberPaise, long balancePaise, Instant settledAt, int bidCount, long maxBidPaise) {
+            this.sequence = sequence;
+            this.type = type;
+            this.chitFundId = chitFundId;
+            this.participantId = participantId;
+            this.month = month;
+            this.amountPaise = amountPaise;
+            this.dividendPerMemberPaise = dividendPerMemberPaise;
+            this.balancePaise = balancePaise;
+            this.settledAt = settledAt;
+            this.bidCount = bidCount;
+            this.maxBidPaise = maxBidPaise;
+        }
+    }
+
+    private static final int RECORD_HEADER = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final class Segment {
+        final Path path;
+        final long firstSequence;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        // Bytes of complete records; readers only look below this
+        volatile int end;
+        long lastSequence;
+        int synced;
+
+        Segment(Path path, long firstSequence, MappedByteBuffer buffer, int capacity) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+    }
+
+    private final Config config;
+    private final Path dir;
+    private final List<Segment> segments = new ArrayList<>();
+    private final ScheduledExecutorService syncer;
+    private Segment active;
+    private long nextSequence;
+    private int unsynced;
+    private boolean closed;
+
+    // Where the last read stopped, so the projector doesn't rescan a segment each time
+    private Segment hintSegment;
+    private int hintOffset;
+    private long hintSequence = -1;
+
+    private BidEventLog(Config config) {
+        this.config = config;
+        this.dir = Paths.get(config.dir);
+        if (config.syncIntervalMillis > 0) {
+            syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "chitfund-eventlog-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            syncer = null;
+        }
+    }
+
+    // Enabled by setting chitfund.eventlog.dir
+    public static boolean isEnabled() {
+        return System.getProperty("chitfund.eventlog.dir") != null;
+    }
+
+    public static BidEventLog open(Config config) throws IOException {
+        BidEventLog log = new BidEventLog(config);
+        log.recover();
+        if (log.syncer != null) {
+            log.syncer.scheduleWithFixedDelay(log::sync, config.syncIntervalMillis,
+                    config.syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return log;
+    }
+
+    public synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    public synchronized long appendBid(String chitFundId, String participantId, long amountPaise,
+                                       int auctionMonth) throws IOException {
+        byte[] fund = utf8(chitFundId);
+        byte[] participant = utf8(participantId);
+        ByteBuffer out = begin(Type.BID, 2 + fund.length + 2 + participant.length + 8 + 4);
+        putString(out, fund);
+        putString(out, participant);
+        out.putLong(amountPaise);
+        out.putInt(auctionMonth);
+        return finish(out);
+    }
+
+    public synchronized long appendSettlement(SettlementResult result) throws IOException {
+        byte[] fund = utf8(result.getChitFund().getChitFundId());
+        byte[] participant = utf8(result.getWinner().getParticipantId());
+        ByteBuffer out = begin(Type.SETTLEMENT, 2 + fund.length + 2 + participant.length + 4 + 8 * 3 + 8 + 4);
+        putString(out, fund);
+        putString(out, participant);
+        out.putInt(result.getMonth());
+        out.putLong(result.getAmount());
+        out.putLong(result.getDividendPerMember());
+        out.putLong(result.getWinner().getAmountReceived());
+        out.putLong(result.getSettledAt().getEpochSecond());
+        out.putInt(result.getSettledAt().getNano());
+        return finish(out);
+    }
+
+    // Forces appended records to disk
+    public void sync() {
+        Segment segment;
+        int from;
+        int to;
+        synchronized (this) {
+            if (closed || active == null) {
+                return;
+            }
+            segment = active;
+            from = segment.synced;
+            to = segment.end;
+            segment.synced = to;
+            unsynced = 0;
+        }
+        if (to > from) {
+            segment.buffer.force(from, to - from);
+        }
+    }
+
+    // Events after the given sequence number, oldest first
+    public List<Event> read(long afterSequence, int maxEvents) {
+        List<Segment> view;
+        Segment start = null;
+        int offset = 0;
+        synchronized (this) {
+            view = new ArrayList<>(segments);
+            if (hintSequence == afterSequence && view.contains(hintSegment)) {
+                start = hintSegment;
+                offset = hintOffset;
+            }
+        }
+        int index;
+        if (start != null) {
+            index = view.indexOf(start);
+        } else {
+            // Segments are named after their first sequence number
+            index = 0;
+            while (index + 1 < view.size() && view.get(index + 1).firstSequence <= afterSequence + 1) {
+                index++;
+            }
+        }
+
+        List<Event> events = new ArrayList<>(Math.min(maxEvents, 4096));
+        Segment lastSegment = null;
+        int lastEnd = 0;
+        for (int pos = offset; index < view.size() && events.size() < maxEvents; index++, pos = 0) {
+            Segment segment = view.get(index);
+            int end = segment.end;
+            ByteBuffer buffer = segment.buffer;
+            while (pos < end && events.size() < maxEvents) {
+                int next = pos + RECORD_HEADER + buffer.getInt(pos);
+                if (buffer.getLong(pos + RECORD_HEADER) > afterSequence) {
+                    events.add(decode(buffer, pos + RECORD_HEADER));
+                    lastSegment = segment;
+                    lastEnd = next;
+                }
+                pos = next;
+            }
+        }
+        if (lastSegment != null) {
+            synchronized (this) {
+                hintSegment = lastSegment;
+                hintOffset = lastEnd;
+                hintSequence = events.get(events.size() - 1).sequence;
+            }
+        }
+        return events;
+    }
+
+    // Rewrites sealed segments whose events have all been projected, replacing the
+    // bids of each settled fund and month with one MONTH_SUMMARY record placed where
+    // the last of those bids was. Settlements and bids of open months are kept as
+    // they are. Returns the number of records removed.
+    public int compact(long projectedSequence) throws IOException {
+        List<Segment> view;
+        Segment open;
+        synchronized (this) {
+            view = new ArrayList<>(segments);
+            open = active;
+        }
+
+        Set<String> settled = new HashSet<>();
+        for (Segment segment : view) {
+            for (int pos = 0; pos < segment.end; pos += RECORD_HEADER + segment.buffer.getInt(pos)) {
+                int payload = pos + RECORD_HEADER;
+                if (segment.buffer.getLong(payload) > projectedSequence) {
+                    break;
+                }
+                if (typeAt(segment.buffer, payload) == Type.SETTLEMENT) {
+                    Event event = decode(segment.buffer, payload);
+                    settled.add(monthKey(event.chitFundId, event.month));
+                }
+            }
+        }
+
+        int removed = 0;
+        for (Segment segment : view) {
+            if (segment == open || segment.lastSequence > projectedSequence) {
+                break;
+            }
+            removed += compact(segment, settled);
+        }
+        return removed;
+    }
+
+    @Override
+    public void close() {
+        if (syncer != null) {
+            syncer.shutdown();
+        }
+        sync();
+        synchronized (this) {
+            closed = true;
+        }
+    }
+
+    private int compact(Segment segment, Set<String> settled) throws IOException {
+        Map<String, long[]> months = new HashMap<>();
+        ByteBuffer buffer = segment.buffer;
+        for (int pos = 0; pos < segment.end; pos += RECORD_HEADER + buffer.getInt(pos)) {
+            int payload = pos + RECORD_HEADER;
+            if (typeAt(buffer, payload) == Type.BID) {
+                Event bid = decode(buffer, payload);
+                String key = monthKey(bid.chitFundId, bid.month);
+                if (settled.contains(key)) {
+                    // count, total, max, sequence of the last bid
+                    long[] summary = months.computeIfAbsent(key, k -> new long[4]);
+                    summary[0]++;
+                    summary[1] += bid.amountPaise;
+                    summary[2] = Math.max(summary[2], bid.amountPaise);
+                    summary[3] = bid.sequence;
+                }
+            }
+        }
+        if (months.isEmpty()) {
+            return 0;
+        }
+
+        // A summary can be a little longer than the single bid it replaces
+        ByteBuffer out = ByteBuffer.allocate(segment.end + months.size() * 32);
+        int removed = 0;
+        for (int pos = 0; pos < segment.end; pos += RECORD_HEADER + buffer.getInt(pos)) {
+            int payload = pos + RECORD_HEADER;
+            int length = buffer.getInt(pos);
+            if (typeAt(buffer, payload) == Type.BID) {
+                Event bid = decode(buffer, payload);
+                long[] summary = months.get(monthKey(bid.chitFundId, bid.month));
+                if (summary != null) {
+                    if (bid.sequence == summary[3]) {
+                        int start = out.position();
+                        begin(out, bid.sequence, Type.MONTH_SUMMARY);
+                        putString(out, utf8(bid.chitFundId));
+                        out.putInt(bid.month);
+                        out.putInt((int) summary[0]);
+                        out.putLong(summary[1]);
+                        out.putLong(summary[2]);
+                        finish(out, start);
+                    }
+                    removed++;
+                    continue;
+                }
+            }
+            out.put(buffer.slice(pos, RECORD_HEADER + length));
+        }
+        removed -= months.size();
+        out.flip();
+
+        Path compacted = segment.path.resolveSibling(segment.path.getFileName() + ".compact");
+        try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        // The old mapping stays valid for readers still holding it and is released when
+        // the garbage collector gets to it. Windows won't replace a file while it is
+        // mapped; the segment is then left as it is and the failure reported.
+        try {
+            Files.move(compacted, segment.path, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(compacted);
+            throw new IOException("Could not replace " + segment.path + " with its compacted copy, " +
+                    "so it stays uncompacted", e);
+        }
+        Segment replacement = map(segment.path, segment.firstSequence, false);
+        synchronized (this) {
+            int index = segments.indexOf(segment);
+            if (index >= 0) {
+                segments.set(index, replacement);
+            }
+        }
+        return removed;
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(dir);
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        paths.sort(null);
+
+        long lastSequence = 0;
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            String name = path.getFileName().toString();
+            long firstSequence = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            boolean last = i == paths.size() - 1;
+            Segment segment = map(path, firstSequence, last);
+            // A sealed segment normally ends in unused, zeroed space too small for the
+            // next record; a record header there means one failed its checks
+            if (!last && segment.end + RECORD_HEADER <= segment.capacity &&
+                    segment.buffer.getLong(segment.end) != 0) {
+                System.out.println("Event log segment " + path + " is damaged after byte " + segment.end +
+                        "; later events in it are ignored");
+            }
+            if (segment.lastSequence > 0) {
+                lastSequence = segment.lastSequence;
+            }
+            segments.add(segment);
+        }
+        nextSequence = lastSequence + 1;
+        if (segments.isEmpty()) {
+            roll();
+        } else {
+            active = segments.get(segments.size() - 1);
+            active.synced = active.end;
+            clearTail(active);
+        }
+    }
+
+    // Maps a segment and finds the end of its valid records. Only the active segment
+    // is mapped for writing, at full segment size.
+    private Segment map(Path path, long firstSequence, boolean writable) throws IOException {
+        MappedByteBuffer buffer;
+        int capacity;
+        if (writable) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                capacity = (int) Math.max(channel.size(), config.segmentBytes);
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            }
+        } else {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                capacity = (int) channel.size();
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, capacity);
+            }
+        }
+        Segment segment = new Segment(path, firstSequence, buffer, capacity);
+        CRC32 crc = new CRC32();
+        long previous = firstSequence - 1;
+        int pos = 0;
+        while (pos + RECORD_HEADER <= capacity) {
+            int length = buffer.getInt(pos);
+            if (length < 9 || length > capacity - pos - RECORD_HEADER) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(pos + RECORD_HEADER, length));
+            long sequence = buffer.getLong(pos + RECORD_HEADER);
+            int type = buffer.get(pos + RECORD_HEADER + 8);
+            if ((int) crc.getValue() != buffer.getInt(pos + 4) || sequence <= previous ||
+                    type < 1 || type > Type.values().length) {
+                break;
+            }
+            previous = sequence;
+            pos += RECORD_HEADER + length;
+        }
+        segment.end = pos;
+        segment.lastSequence = previous >= firstSequence ? previous : 0;
+        return segment;
+    }
+
+    // Zeroes whatever follows the last good record of the active segment, so bytes
+    // from a torn write can't be mistaken for records once appends resume
+    private static void clearTail(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int pos = segment.end;
+        while (pos + RECORD_HEADER <= segment.capacity) {
+            int length = buffer.getInt(pos);
+            boolean blank = length == 0 && buffer.getInt(pos + 4) == 0;
+            if (blank) {
+                break;
+            }
+            int next = length <= 0 || length > segment.capacity - pos - RECORD_HEADER
+                    ? segment.capacity : pos + RECORD_HEADER + length;
+            for (int i = pos; i < next; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            pos = next;
+        }
+    }
+
+    // Seals the active segment and starts a new one at the next sequence number
+    private void roll() throws IOException {
+        if (active != null) {
+            active.buffer.force(active.synced, active.end - active.synced);
+            active.synced = active.end;
+        }
+        Path path = dir.resolve(String.format("%020d%s", nextSequence, SEGMENT_SUFFIX));
+        active = map(path, nextSequence, true);
+        segments.add(active);
+    }
+
+    private ByteBuffer begin(Type type, int fieldBytes) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Event log is closed");
+        }
+        int recordBytes = RECORD_HEADER + 9 + fieldBytes;
+        if (recordBytes > config.segmentBytes) {
+            throw new IllegalArgumentException("Event of " + recordBytes + " bytes is larger than a segment");
+        }
+        if (active.capacity - active.end < recordBytes) {
+            roll();
+        }
+        ByteBuffer out = active.buffer;
+        out.position(active.end);
+        begin(out, nextSequence, type);
+        return out;
+    }
+
+    private long finish(ByteBuffer out) {
+        finish(out, active.end);
+        long sequence = nextSequence++;
+        active.end = out.position();
+        active.lastSequence = sequence;
+        if (++unsynced >= config.syncEveryRecords) {
+            active.buffer.force(active.synced, active.end - active.synced);
+            active.synced = active.end;
+            unsynced = 0;
+        }
+        return sequence;
+    }
+
+    // Leaves room for the header and writes the sequence number and type
+    private static void begin(ByteBuffer out, long sequence, Type type) {
+        out.position(out.position() + RECORD_HEADER);
+        out.putLong(sequence);
+        out.put((byte) (type.ordinal() + 1));
+    }
+
+    // Fills in the header of the record starting at start, now that its payload is written
+    private static void finish(ByteBuffer out, int start) {
+        int length = out.position() - start - RECORD_HEADER;
+        CRC32 crc = new CRC32();
+        crc.update(out.slice(start + RECORD_HEADER, length));
+        out.putInt(start + 4, (int) crc.getValue());
+        out.putInt(start, length);
+    }
+
+    private static Type typeAt(ByteBuffer buffer, int payload) {
+        return Type.values()[buffer.get(payload + 8) - 1];
+    }
+
+    private static Event decode(ByteBuffer buffer, int payload) {
+        long sequence = buffer.getLong(payload);
+        Type type = typeAt(buffer, payload);
+        int pos = payload + 9;
+        String chitFundId = getString(buffer, pos);
+        pos += 2 + (buffer.getShort(pos) & 0xFFFF);
+        switch (type) {
+            case BID: {
+                String participantId = getString(buffer, pos);
+                pos += 2 + (buffer.getShort(pos) & 0xFFFF);
+                return new Event(sequence, type, chitFundId, participantId, buffer.getInt(pos + 8),
+                        buffer.getLong(pos), 0, 0, null, 0, 0);
+            }
+            case SETTLEMENT: {
+                String participantId = getString(buffer, pos);
+                pos += 2 + (buffer.getShort(pos) & 0xFFFF);
+                return new Event(sequence, type, chitFundId, participantId, buffer.getInt(pos),
+                        buffer.getLong(pos + 4), buffer.getLong(pos + 12), buffer.getLong(pos + 20),
+                        Instant.ofEpochSecond(buffer.getLong(pos + 28), buffer.getInt(pos + 36)), 0, 0);
+            }
+            default:
+                return new Event(sequence, type, chitFundId, null, buffer.getInt(pos),
+                        buffer.getLong(pos + 8), 0, 0, null, buffer.getInt(pos + 4), buffer.getLong(pos + 16));
+        }
+    }
+
+    private static String monthKey(String chitFundId, int month) {
+        return chitFundId + '\u0000' + month;
+    }
+
+    private static byte[] utf8(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("ID is too long for the event log: " + value);
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer out, byte[] bytes) {
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer, int pos) {
+        byte[] bytes = new byte[buffer.getShort(pos) & 0xFFFF];
+        buffer.get(pos + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,95 @@
+package chitfund;
+
+import java.util.Arrays;
+
+// Bids for one auction month, stored column by column: the bidder's member slot in
+// an int[] and the amount in paise in a long[], with row i being the i-th bid placed.
+// That is 12 bytes a bid instead of a Bid object and its Participant reference.
+// Bids are only appended during a month, so the winner, the total and the count
+// are kept up to date as rows arrive. The highest amount wins and ties go to the
+// earlier bid.
+public class BidLedger {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Called once per row by forEach; implementations should not add bids
+    public interface BidVisitor {
+        void visit(int member, long amountPaise);
+    }
+
+    private int[] members;
+    private long[] amounts;
+    private int size;
+    private int winningRow = -1;
+    private long sum;
+
+    public BidLedger() {
+        this.members = new int[INITIAL_CAPACITY];
+        this.amounts = new long[INITIAL_CAPACITY];
+    }
+
+    public void add(int member, long amountPaise) {
+        if (size == members.length) {
+            members = Arrays.copyOf(members, size * 2);
+            amounts = Arrays.copyOf(amounts, size * 2);
+        }
+        members[size] = member;
+        amounts[size] = amountPaise;
+        if (winningRow < 0 || amountPaise > amounts[winningRow]) {
+            winningRow = size;
+        }
+        sum += amountPaise;
+        size++;
+    }
+
+    public int count() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Row of the winning bid, or -1 if nobody has bid
+    public int winningRow() {
+        return winningRow;
+    }
+
+    // Highest amount bid, or 0 if nobody has bid
+    public long max() {
+        return winningRow < 0 ? 0 : amounts[winningRow];
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    public int memberAt(int row) {
+        checkRow(row);
+        return members[row];
+    }
+
+    public long amountAt(int row) {
+        checkRow(row);
+        return amounts[row];
+    }
+
+    // Visits the bids in the order they were placed
+    public void forEach(BidVisitor visitor) {
+        for (int i = 0; i < size; i++) {
+            visitor.visit(members[i], amounts[i]);
+        }
+    }
+
+    // Starts a new auction month; the arrays keep their capacity
+    public void clear() {
+        size = 0;
+        winningRow = -1;
+        sum = 0;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Bid row " + row + " of " + size);
+        }
+    }
+}
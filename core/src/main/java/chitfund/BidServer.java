@@ -0,0 +1,237 @@
+package chitfund;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Local HTTP endpoint through which branch terminals place bids. Requests are served
+// by a fixed pool of threads and go straight to the BidDesk, so bids on different funds
+// are handled in parallel. Parameters come form-encoded in the body or the query:
+//
+//   POST /bids   fund=F1&participant=P7&amount=1500.00   -> 201 with the receipt
+//   GET  /funds?fund=F1                                  -> 200 with the fund's stats
+//
+// Responses are JSON. Bad input gives 400, an unknown fund or member 404, and a bid on
+// a fund that has run all its months 409.
+public class BidServer implements AutoCloseable {
+    public static final int DEFAULT_THREADS = 16;
+    // Request bodies are a few form fields
+    static final int MAX_BODY_BYTES = 4096;
+
+    private final BidDesk desk;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Metrics.Operation metrics = Metrics.get().operation("http.request");
+
+    public BidServer(BidDesk desk, InetSocketAddress address, int threads) throws IOException {
+        this.desk = desk;
+        // Headers and body go out as separate writes; without TCP_NODELAY every response
+        // waits on the client's delayed ACK, about 40 ms. Read once, when the first
+        // server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "chitfund-http-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/bids", exchange -> serve(exchange, "POST", this::placeBid));
+        server.createContext("/funds", exchange -> serve(exchange, "GET", this::fundStatus));
+        server.start();
+    }
+
+    // The bound address; useful when started on port 0
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private interface Handler {
+        // Returns the JSON body of a successful response
+        String handle(Map<String, String> params) throws IOException;
+    }
+
+    private void serve(HttpExchange exchange, String method, Handler handler) throws IOException {
+        long start = Metrics.start();
+        int status;
+        String body;
+        try {
+            if (!method.equals(exchange.getRequestMethod())) {
+                status = 405;
+                body = error("Use " + method);
+            } else {
+                body = handler.handle(readParams(exchange));
+                status = "POST".equals(method) ? 201 : 200;
+            }
+        } catch (NotFoundException e) {
+            status = 404;
+            body = error(e.getMessage());
+        } catch (ConflictException e) {
+            status = 409;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            status = 500;
+            body = error(e.getMessage());
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        if (status < 400) {
+            metrics.record(start);
+        } else {
+            metrics.recordError(start);
+        }
+    }
+
+    private String placeBid(Map<String, String> params) throws IOException {
+        String chitFundId = require(params, "fund");
+        String participantId = require(params, "participant");
+        long amount = Money.parse(require(params, "amount"));
+        ChitFundSystem fund = desk.getSystem().findFund(chitFundId);
+        if (fund == null) {
+            throw new NotFoundException("Chit fund " + chitFundId + " not found");
+        }
+        BidDesk.Receipt receipt;
+        try {
+            receipt = desk.placeBid(chitFundId, participantId, amount);
+        } catch (IllegalArgumentException e) {
+            // The fund exists, so the participant isn't one of its members
+            throw new NotFoundException(e.getMessage());
+        } catch (IllegalStateException e) {
+            // The fund has run all its months
+            throw new ConflictException(e.getMessage());
+        }
+        return "{\"fund\":" + quote(receipt.getChitFundId()) +
+                ",\"participant\":" + quote(receipt.getParticipantId()) +
+                ",\"amount\":\"" + Money.format(receipt.getAmountPaise()) + "\"" +
+                ",\"month\":" + receipt.getAuctionMonth() +
+                ",\"bids\":" + receipt.getBids() +
+                ",\"leading\":" + receipt.isLeading() + "}";
+    }
+
+    private String fundStatus(Map<String, String> params) {
+        String chitFundId = require(params, "fund");
+        FundStats stats;
+        try {
+            stats = desk.getStats(chitFundId);
+        } catch (IllegalArgumentException e) {
+            throw new NotFoundException(e.getMessage());
+        }
+        return "{\"fund\":" + quote(stats.getChitFundId()) +
+                ",\"month\":" + stats.getCurrentMonth() +
+                ",\"months\":" + stats.getNumberOfMonths() +
+                ",\"members\":" + stats.getMembers() +
+                ",\"bids\":" + stats.getOpenBids() +
+                ",\"highest\":\"" + Money.format(stats.getOpenHighestPaise()) + "\"" +
+                ",\"average\":\"" + Money.format(stats.getOpenAveragePaise()) + "\"" +
+                ",\"totalBids\":" + stats.getBidCount() +
+                ",\"averageBid\":\"" + Money.format(stats.getAverageBidPaise()) + "\"" +
+                ",\"highestBid\":\"" + Money.format(stats.getHighestBidPaise()) + "\"" +
+                ",\"settledMonths\":" + stats.getSettledMonths() +
+                ",\"distributed\":\"" + Money.format(stats.getDistributedPaise()) + "\"" +
+                ",\"dividend\":\"" + Money.format(stats.getDividendPaise()) + "\"}";
+    }
+
+    private static Map<String, String> readParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            parseForm(query, params);
+        }
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body is too large");
+            }
+            if (body.length > 0) {
+                parseForm(new String(body, StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        for (String pair : form.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8).trim());
+        }
+    }
+
+    private static String require(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter '" + name + "'");
+        }
+        return value;
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(String.valueOf(message)) + "}";
+    }
+
+    static String quote(String value) {
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    private static final class NotFoundException extends IllegalArgumentException {
+        NotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class ConflictException extends IllegalStateException {
+        ConflictException(String message) {
+            super(message);
+        }
+    }
+}
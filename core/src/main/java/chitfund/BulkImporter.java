@@ -0,0 +1,405 @@
+package chitfund;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Streams chit funds, participants, bids and payments from CSV or JSON Lines files into the
+// database. Rows are checked against in-memory indexes of the IDs already stored,
+// written with multi-row INSERTs and committed in chunks. Importing the same file
+// again is a no-op: funds, participants and memberships are keyed by ID, and every
+// imported bid or payment carries an importKey (its own, or source:line) under a
+// unique index.
+//
+// Expected columns (amounts in rupees, at most two decimals):
+//   funds:        id, totalAmount, numberOfMonths
+//   participants: id, name, chitFundId (optional, adds the membership)
+//   bids:         chitFundId, participantId, bidAmount, auctionMonth (optional), importKey (optional)
+//   payments:     chitFundId, participantId, amount, paidAt (optional), importKey (optional)
+public class BulkImporter {
+    public enum Kind { FUNDS, PARTICIPANTS, BIDS, PAYMENTS }
+
+    public static final int DEFAULT_ROWS_PER_STATEMENT = 100;
+    public static final int DEFAULT_ROWS_PER_TRANSACTION = 10_000;
+    static final int PROGRESS_INTERVAL = 50_000;
+    static final int MAX_REPORTED_ERRORS = 20;
+
+    private final Connection connection;
+    private final int rowsPerStatement;
+    private final int rowsPerTransaction;
+    // Current auction month of every known fund
+    private final Map<String, Integer> fundMonths = new HashMap<>();
+    // Funds moved to ChitFundArchive. They are closed and everything about them is in
+    // the archive, so rows for them are taken as already present; inserting the fund
+    // again would trip the ChitFundNotArchived trigger and abort the import.
+    private final Set<String> archivedFundIds = new HashSet<>();
+    private final Set<String> participantIds = new HashSet<>();
+    private final Set<String> memberships = new HashSet<>();
+
+    public BulkImporter(Connection connection, int rowsPerStatement, int rowsPerTransaction) {
+        this.connection = connection;
+        this.rowsPerStatement = rowsPerStatement;
+        this.rowsPerTransaction = rowsPerTransaction;
+    }
+
+    // Loads the IDs already in the database; call once before importing
+    public void loadIndexes() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(ChitFundLoader.DEFAULT_FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery("SELECT id, currentMonth FROM ChitFund")) {
+                while (rs.next()) {
+                    fundMonths.put(rs.getString(1), rs.getInt(2));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT id FROM ChitFundArchive")) {
+                while (rs.next()) {
+                    archivedFundIds.add(rs.getString(1));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT id FROM Participant")) {
+                while (rs.next()) {
+                    participantIds.add(rs.getString(1));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT chitFundId, participantId FROM ChitFundParticipant")) {
+                while (rs.next()) {
+                    memberships.add(membershipKey(rs.getString(1), rs.getString(2)));
+                }
+            }
+        }
+    }
+
+    public ImportReport importFile(Kind kind, Path file, String source, Consumer<ImportReport> progress)
+            throws IOException, SQLException {
+        ImportReport report = new ImportReport(kind, file);
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        List<Batch> batches = new ArrayList<>();
+        try (RecordReader reader = RecordReader.open(file)) {
+            Batch funds = new Batch("ChitFund", "id, totalAmountPaise, numberOfMonths", 3, report);
+            Batch participants = new Batch("Participant", "id, name, amountReceivedPaise", 3, report);
+            Batch members = new Batch("ChitFundParticipant", "chitFundId, participantId", 2, report);
+            Batch bids = new Batch("Bid", "chitFundId, participantId, bidAmountPaise, auctionMonth, importKey", 5, report);
+            Batch payments = new Batch("Payment", "chitFundId, participantId, amountPaise, paidAt, importKey", 5, report);
+            Collections.addAll(batches, funds, participants, members, bids, payments);
+
+            int uncommitted = 0;
+            Map<String, String> record;
+            while ((record = reader.next()) != null) {
+                report.rowsRead++;
+                try {
+                    switch (kind) {
+                        case FUNDS:
+                            importFund(record, funds, report);
+                            break;
+                        case PARTICIPANTS:
+                            importParticipant(record, participants, members, report);
+                            break;
+                        case BIDS:
+                            String importKey = record.get("importKey");
+                            importBid(record, report, importKey != null && !importKey.isEmpty()
+                                    ? importKey : source + ":" + reader.getLineNumber(), bids);
+                            break;
+                        case PAYMENTS:
+                            String paymentKey = record.get("importKey");
+                            importPayment(record, report, paymentKey != null && !paymentKey.isEmpty()
+                                    ? paymentKey : source + ":" + reader.getLineNumber(), payments);
+                            break;
+                    }
+                } catch (IllegalArgumentException e) {
+                    report.reject(reader.getLineNumber(), e.getMessage());
+                }
+
+                if (++uncommitted >= rowsPerTransaction) {
+                    commit(batches);
+                    uncommitted = 0;
+                }
+                if (progress != null && report.rowsRead % PROGRESS_INTERVAL == 0) {
+                    progress.accept(report);
+                }
+            }
+            commit(batches);
+        } catch (IOException | SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            for (Batch batch : batches) {
+                batch.close();
+            }
+            connection.setAutoCommit(autoCommit);
+        }
+        report.finish();
+        return report;
+    }
+
+    private void importFund(Map<String, String> record, Batch funds, ImportReport report) throws SQLException {
+        String id = required(record, "id");
+        long totalAmount = parseMoney(record, "totalAmount");
+        int numberOfMonths = parseInt(record, "numberOfMonths");
+        ChitFundSystem.checkTerms(totalAmount, numberOfMonths);
+        if (archivedFundIds.contains(id) || fundMonths.putIfAbsent(id, 1) != null) {
+            report.skipped++;
+            return;
+        }
+        funds.add(id, totalAmount, numberOfMonths);
+    }
+
+    private void importParticipant(Map<String, String> record, Batch participants, Batch members,
+                                   ImportReport report) throws SQLException {
+        String id = required(record, "id");
+        String name = required(record, "name");
+        String chitFundId = record.get("chitFundId");
+        boolean hasFund = chitFundId != null && !chitFundId.isEmpty();
+        boolean archived = hasFund && archivedFundIds.contains(chitFundId);
+        if (hasFund && !archived && !fundMonths.containsKey(chitFundId)) {
+            throw new IllegalArgumentException("unknown chit fund " + chitFundId);
+        }
+
+        boolean added = false;
+        if (participantIds.add(id)) {
+            participants.add(id, name, 0L);
+            added = true;
+        }
+        if (hasFund && !archived && memberships.add(membershipKey(chitFundId, id))) {
+            members.add(chitFundId, id);
+            added = true;
+        }
+        if (!added) {
+            report.skipped++;
+        }
+    }
+
+    // Bids that are already in are skipped by the unique importKey index, so they show
+    // up in the report as rows written minus rows inserted
+    private void importBid(Map<String, String> record, ImportReport report, String importKey, Batch bids)
+            throws SQLException {
+        String chitFundId = required(record, "chitFundId");
+        String participantId = required(record, "participantId");
+        long bidAmount = parseMoney(record, "bidAmount");
+        if (archivedFundIds.contains(chitFundId)) {
+            report.skipped++;
+            return;
+        }
+        Integer currentMonth = fundMonths.get(chitFundId);
+        if (currentMonth == null) {
+            throw new IllegalArgumentException("unknown chit fund " + chitFundId);
+        }
+        if (!participantIds.contains(participantId)) {
+            throw new IllegalArgumentException("unknown participant " + participantId);
+        }
+        if (!memberships.contains(membershipKey(chitFundId, participantId))) {
+            throw new IllegalArgumentException("participant " + participantId + " is not in chit fund " + chitFundId);
+        }
+        String month = record.get("auctionMonth");
+        int auctionMonth = month == null || month.isEmpty() ? currentMonth : parseInt(record, "auctionMonth");
+        bids.add(chitFundId, participantId, bidAmount, auctionMonth, importKey);
+    }
+
+    // Like bids, payments already in are skipped by their unique importKey
+    private void importPayment(Map<String, String> record, ImportReport report, String importKey, Batch payments)
+            throws SQLException {
+        String chitFundId = required(record, "chitFundId");
+        String participantId = required(record, "participantId");
+        long amount = parseMoney(record, "amount");
+        if (amount <= 0) {
+            throw new IllegalArgumentException("amount must be positive");
+        }
+        if (archivedFundIds.contains(chitFundId)) {
+            report.skipped++;
+            return;
+        }
+        if (!fundMonths.containsKey(chitFundId)) {
+            throw new IllegalArgumentException("unknown chit fund " + chitFundId);
+        }
+        if (!memberships.contains(membershipKey(chitFundId, participantId))) {
+            throw new IllegalArgumentException("participant " + participantId + " is not in chit fund " + chitFundId);
+        }
+        String paidAt = record.get("paidAt");
+        payments.add(chitFundId, participantId, amount, paidAt == null || paidAt.isEmpty() ? null : paidAt.trim(),
+                importKey);
+    }
+
+    private void commit(List<Batch> batches) throws SQLException {
+        for (Batch batch : batches) {
+            batch.flush();
+        }
+        connection.commit();
+    }
+
+    private static String membershipKey(String chitFundId, String participantId) {
+        return chitFundId + '\u0000' + participantId;
+    }
+
+    private static String required(Map<String, String> record, String column) {
+        String value = record.get(column);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("missing " + column);
+        }
+        return value.trim();
+    }
+
+    // Files carry rupees; the database stores paise
+    private static long parseMoney(Map<String, String> record, String column) {
+        String value = required(record, column);
+        try {
+            return Money.parse(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("bad " + column + " '" + value + "'");
+        }
+    }
+
+    private static int parseInt(Map<String, String> record, String column) {
+        String value = required(record, column);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad " + column + " '" + value + "'");
+        }
+    }
+
+    // Buffers rows for one table and writes them rowsPerStatement at a time with a
+    // single multi-row INSERT OR IGNORE
+    private final class Batch {
+        private final String table;
+        private final String columnList;
+        private final int columns;
+        private final ImportReport report;
+        private final Object[] params;
+        private PreparedStatement fullStatement;
+        private int rows;
+
+        Batch(String table, String columnList, int columns, ImportReport report) {
+            this.table = table;
+            this.columnList = columnList;
+            this.columns = columns;
+            this.report = report;
+            this.params = new Object[rowsPerStatement * columns];
+        }
+
+        void add(Object... values) throws SQLException {
+            System.arraycopy(values, 0, params, rows * columns, columns);
+            report.rowsWritten++;
+            if (++rows == rowsPerStatement) {
+                flush();
+            }
+        }
+
+        void flush() throws SQLException {
+            if (rows == 0) {
+                return;
+            }
+            if (rows == rowsPerStatement) {
+                if (fullStatement == null) {
+                    fullStatement = connection.prepareStatement(insertSql(rowsPerStatement));
+                }
+                execute(fullStatement);
+            } else {
+                try (PreparedStatement pstmt = connection.prepareStatement(insertSql(rows))) {
+                    execute(pstmt);
+                }
+            }
+            rows = 0;
+        }
+
+        private void execute(PreparedStatement pstmt) throws SQLException {
+            for (int i = 0; i < rows * columns; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            report.inserted += pstmt.executeUpdate();
+        }
+
+        private String insertSql(int rowCount) {
+            StringBuilder row = new StringBuilder("(");
+            for (int i = 0; i < columns; i++) {
+                row.append(i == 0 ? "?" : ", ?");
+            }
+            row.append(')');
+            StringBuilder sql = new StringBuilder("INSERT OR IGNORE INTO ").append(table)
+                    .append(" (").append(columnList).append(") VALUES ");
+            for (int i = 0; i < rowCount; i++) {
+                sql.append(i == 0 ? "" : ", ").append(row);
+            }
+            return sql.toString();
+        }
+
+        void close() {
+            if (fullStatement != null) {
+                try {
+                    fullStatement.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public static class ImportReport {
+        private final Kind kind;
+        private final Path file;
+        private final long startNanos = System.nanoTime();
+        private final List<String> errors = new ArrayList<>();
+        long rowsRead;
+        long rowsWritten;
+        long inserted;
+        long skipped;
+        long rejected;
+        private long elapsedNanos;
+
+        ImportReport(Kind kind, Path file) {
+            this.kind = kind;
+            this.file = file;
+        }
+
+        void reject(long lineNumber, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("line " + lineNumber + ": " + message);
+            }
+        }
+
+        void finish() {
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public List<String> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        @Override
+        public String toString() {
+            long nanos = elapsedNanos > 0 ? elapsedNanos : System.nanoTime() - startNanos;
+            long millis = nanos / 1_000_000;
+            long rowsPerSecond = nanos > 0 ? rowsRead * 1_000_000_000L / nanos : 0;
+            // Rows written but not inserted were already in the database (bids and
+            // payments by importKey)
+            long alreadyPresent = skipped + (rowsWritten - inserted);
+            return kind.name().toLowerCase() + " " + file.getFileName() + ": " + rowsRead + " rows read, " +
+                    inserted + " inserted, " + alreadyPresent + " already present, " + rejected + " rejected in " +
+                    millis + " ms (" + rowsPerSecond + " rows/s)";
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package chitfund;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A JDBC connection with an LRU cache of prepared statements. Statements returned by
+// prepare() stay owned by the cache and must not be closed by the caller; their
+// executions are timed per statement in Metrics.
+public class CachedConnection implements AutoCloseable {
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+
+    public CachedConnection(Connection connection, int maxStatements) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(maxStatements * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > maxStatements) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Connection getConnection() {
+        return connection;
+    }
+
+    public synchronized PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement pstmt = statements.get(sql);
+        if (pstmt == null) {
+            pstmt = Metrics.get().instrument(connection.prepareStatement(sql), sql);
+            statements.put(sql, pstmt);
+        }
+        return pstmt;
+    }
+
+    public synchronized void clearBatches() throws SQLException {
+        for (PreparedStatement pstmt : statements.values()) {
+            pstmt.clearBatch();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (PreparedStatement pstmt : statements.values()) {
+            closeQuietly(pstmt);
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement pstmt) {
+        try {
+            pstmt.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package chitfund;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Bulk loader that rebuilds the in-memory model from the database at startup.
+// Each table is streamed once and references are resolved through the ID indexes,
+// so load time grows linearly with the number of rows.
+public class ChitFundLoader {
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final Connection connection;
+    private final int fetchSize;
+
+    public ChitFundLoader(Connection connection, int fetchSize) {
+        this.connection = connection;
+        this.fetchSize = fetchSize;
+    }
+
+    public LoadReport load(ChitFundManagementSystem system) throws SQLException {
+        LoadReport report = new LoadReport();
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(fetchSize);
+
+            // Load all chit funds
+            long start = System.nanoTime();
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT id, totalAmountPaise, numberOfMonths, currentMonth FROM ChitFund")) {
+                while (rs.next()) {
+                    system.addChitFund(new ChitFundSystem(rs.getString(1), rs.getLong(2), rs.getInt(3), rs.getInt(4)));
+                    report.funds++;
+                }
+            }
+            report.fundMillis = elapsedMillis(start);
+
+            // Load all participants
+            start = System.nanoTime();
+            try (ResultSet rs = stmt.executeQuery("SELECT id, name, amountReceivedPaise FROM Participant")) {
+                while (rs.next()) {
+                    Participant participant = new Participant(rs.getString(1), rs.getString(2));
+                    participant.receiveAmount(rs.getLong(3));
+                    system.addParticipant(participant);
+                    report.participants++;
+                }
+            }
+            report.participantMillis = elapsedMillis(start);
+
+            // Attach participants to the chit funds they are members of
+            start = System.nanoTime();
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT chitFundId, participantId FROM ChitFundParticipant")) {
+                while (rs.next()) {
+                    ChitFundSystem cf = system.findFund(rs.getString(1));
+                    Participant participant = system.getParticipant(rs.getString(2));
+                    if (cf != null && participant != null) {
+                        cf.addParticipant(participant);
+                        report.memberships++;
+                    }
+                }
+            }
+            report.membershipMillis = elapsedMillis(start);
+
+            // Load the open auction month's bids in insertion order; settled months
+            // stay in the database only
+            start = System.nanoTime();
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT b.chitFundId, b.participantId, b.bidAmountPaise FROM Bid b " +
+                    "JOIN ChitFund f ON f.id = b.chitFundId " +
+                    "WHERE b.auctionMonth = f.currentMonth ORDER BY b.id")) {
+                while (rs.next()) {
+                    String chitFundId = rs.getString(1);
+                    ChitFundSystem cf = system.findFund(chitFundId);
+                    Participant participant = system.findParticipant(chitFundId, rs.getString(2));
+                    if (cf != null && participant != null) {
+                        cf.addBid(participant, rs.getLong(3));
+                        report.bids++;
+                    } else {
+                        report.skippedBids++;
+                    }
+                }
+            }
+            report.bidMillis = elapsedMillis(start);
+        }
+
+        // Running totals over settled months come from FundStats, not from the bids
+        long start = System.nanoTime();
+        FundStatsTable.loadInto(connection, system);
+        report.statsMillis = elapsedMillis(start);
+        return report;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public static class LoadReport {
+        int funds;
+        int participants;
+        int memberships;
+        int bids;
+        int skippedBids;
+        long fundMillis;
+        long participantMillis;
+        long membershipMillis;
+        long bidMillis;
+        long statsMillis;
+
+        public long getTotalMillis() {
+            return fundMillis + participantMillis + membershipMillis + bidMillis + statsMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Loaded " + funds + " chit funds (" + fundMillis + " ms), " +
+                    participants + " participants (" + participantMillis + " ms), " +
+                    memberships + " memberships (" + membershipMillis + " ms), " +
+                    bids + " bids (" + bidMillis + " ms" +
+                    (skippedBids > 0 ? ", " + skippedBids + " skipped" : "") + ") and totals (" +
+                    statsMillis + " ms) in " +
+                    getTotalMillis() + " ms";
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package chitfund;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Funds and participants are added on one thread (startup, then the EDT) but looked
+// up from bidding threads as well, so the indexes are concurrent maps. The fund list
+// is only read by the thread that adds to it, or by another thread holding every
+// BidDesk stripe (the snapshot) while funds are added under a stripe.
+public class ChitFundManagementSystem {
+    private List<ChitFundSystem> chitFunds;
+    // Chit funds keyed by ID so lookups don't scan the list
+    private Map<String, ChitFundSystem> chitFundIndex;
+    // Every known participant; a participant can be a member of several funds
+    private Map<String, Participant> participantIndex;
+    // Autocomplete over fund IDs, and over participant IDs and names
+    private final PrefixIndex<ChitFundSystem> fundSearch = new PrefixIndex<>();
+    private final PrefixIndex<Participant> participantSearch = new PrefixIndex<>();
+
+    public ChitFundManagementSystem() {
+        this.chitFunds = new ArrayList<>();
+        this.chitFundIndex = new ConcurrentHashMap<>();
+        this.participantIndex = new ConcurrentHashMap<>();
+    }
+
+    public void addChitFund(ChitFundSystem chitFund) {
+        if (chitFundIndex.putIfAbsent(chitFund.getChitFundId(), chitFund) != null) {
+            throw new IllegalArgumentException("Chit fund " + chitFund.getChitFundId() + " already exists");
+        }
+        chitFunds.add(chitFund);
+        fundSearch.add(chitFund.getChitFundId(), chitFund);
+    }
+
+    public ChitFundSystem findFund(String chitFundId) {
+        return chitFundId != null ? chitFundIndex.get(chitFundId) : null;
+    }
+
+    public Participant findParticipant(String chitFundId, String participantId) {
+        ChitFundSystem chitFund = findFund(chitFundId);
+        return chitFund != null ? chitFund.findParticipant(participantId) : null;
+    }
+
+    public void addParticipant(Participant participant) {
+        if (participantIndex.putIfAbsent(participant.getParticipantId(), participant) != null) {
+            throw new IllegalArgumentException("Participant " + participant.getParticipantId() + " already exists");
+        }
+        indexParticipant(participant);
+    }
+
+    private void indexParticipant(Participant participant) {
+        participantSearch.add(participant.getParticipantId(), participant);
+        participantSearch.add(participant.getName(), participant);
+    }
+
+    public Participant getParticipant(String participantId) {
+        return participantId != null ? participantIndex.get(participantId) : null;
+    }
+
+    // Every known participant, whether or not they belong to a fund
+    public Collection<Participant> getParticipants() {
+        return Collections.unmodifiableCollection(participantIndex.values());
+    }
+
+    public void addParticipantToChitFund(String chitFundId, Participant participant) {
+        ChitFundSystem chitFund = requireFund(chitFundId);
+        Participant existing = participantIndex.putIfAbsent(participant.getParticipantId(), participant);
+        if (existing != null && existing != participant) {
+            throw new IllegalArgumentException("Participant " + participant.getParticipantId() + " already exists");
+        }
+        if (existing == null) {
+            indexParticipant(participant);
+        }
+        chitFund.addParticipant(participant);
+    }
+
+    public SettlementResult conductBidding(String chitFundId) {
+        return requireFund(chitFundId).distributeAmount();
+    }
+
+    // Funds whose ID starts with prefix, ignoring case. Safe to call from any thread.
+    public List<ChitFundSystem> searchFunds(String prefix, int limit) {
+        return fundSearch.complete(prefix, limit);
+    }
+
+    // Participants whose ID or name starts with prefix, ignoring case. Safe to call
+    // from any thread.
+    public List<Participant> searchParticipants(String prefix, int limit) {
+        return participantSearch.complete(prefix, limit);
+    }
+
+    // Sorts what has been added to the search indexes so far; call once loading is done
+    public void compactSearch() {
+        fundSearch.compact();
+        participantSearch.compact();
+    }
+
+    public List<ChitFundSystem> getChitFunds() {
+        return Collections.unmodifiableList(chitFunds);
+    }
+
+    private ChitFundSystem requireFund(String chitFundId) {
+        ChitFundSystem chitFund = findFund(chitFundId);
+        if (chitFund == null) {
+            throw new IllegalArgumentException("Chit fund " + chitFundId + " not found");
+        }
+        return chitFund;
+    }
+}
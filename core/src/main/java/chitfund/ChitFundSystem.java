@@ -0,0 +1,227 @@
+package chitfund;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Not thread-safe on its own: once bids can arrive from other threads, a fund is only
+// touched under its BidDesk lock.
+public class ChitFundSystem {
+    private String chitFundId;
+    private long totalAmount;
+    private int numberOfMonths;
+    private List<Participant> participants;
+    // Position of each member in participants, keyed by ID; the ledger records
+    // bidders by that position
+    private Map<String, Integer> participantIndex;
+    // Bids for the current auction month only
+    private BidLedger ledger;
+    private int currentMonth;
+    // Running totals over every month, in step with the fund's FundStats row
+    private long bidCount;
+    private long bidTotalPaise;
+    private long highestBidPaise;
+    private int settledMonths;
+    private long distributedPaise;
+    private long dividendPaise;
+
+    public ChitFundSystem(String chitFundId, long totalAmount, int numberOfMonths) {
+        this(chitFundId, totalAmount, numberOfMonths, 1);
+    }
+
+    public ChitFundSystem(String chitFundId, long totalAmount, int numberOfMonths, int currentMonth) {
+        this.chitFundId = chitFundId;
+        this.totalAmount = totalAmount;
+        this.numberOfMonths = numberOfMonths;
+        this.currentMonth = currentMonth;
+        this.participants = new ArrayList<>();
+        this.participantIndex = new HashMap<>();
+        this.ledger = new BidLedger();
+    }
+
+    // Terms a new fund must have: the installment schedule divides the chit value over
+    // the months
+    public static void checkTerms(long totalAmount, int numberOfMonths) {
+        if (totalAmount <= 0) {
+            throw new IllegalArgumentException("total amount must be positive");
+        }
+        if (numberOfMonths <= 0) {
+            throw new IllegalArgumentException("number of months must be positive");
+        }
+    }
+
+    public String getChitFundId() {
+        return chitFundId;
+    }
+
+    // Chit value in paise
+    public long getTotalAmount() {
+        return totalAmount;
+    }
+
+    public int getNumberOfMonths() {
+        return numberOfMonths;
+    }
+
+    public int getCurrentMonth() {
+        return currentMonth;
+    }
+
+    public List<Participant> getParticipants() {
+        return Collections.unmodifiableList(participants);
+    }
+
+    public Participant findParticipant(String participantId) {
+        Integer member = participantIndex.get(participantId);
+        return member != null ? participants.get(member) : null;
+    }
+
+    // Members whose ID or name starts with prefix, ignoring case. A fund has a few
+    // dozen members, so they are simply scanned. Call it under the fund's BidDesk lock
+    // when other threads can change the fund.
+    public List<Participant> searchMembers(String prefix, int limit) {
+        List<Participant> matches = new ArrayList<>();
+        for (Participant member : participants) {
+            if (matches.size() == limit) {
+                break;
+            }
+            String name = member.getName();
+            if (member.getParticipantId().regionMatches(true, 0, prefix, 0, prefix.length()) ||
+                    (name != null && name.regionMatches(true, 0, prefix, 0, prefix.length()))) {
+                matches.add(member);
+            }
+        }
+        return matches;
+    }
+
+    // Member at a position recorded in the ledger
+    public Participant getMember(int member) {
+        return participants.get(member);
+    }
+
+    // The open month's bids, for reading without creating Bid objects. Bids must go
+    // through addBid so they are checked against the membership.
+    public BidLedger getLedger() {
+        return ledger;
+    }
+
+    // Bids in the order they were placed
+    public List<Bid> getBids() {
+        List<Bid> bids = new ArrayList<>(ledger.count());
+        ledger.forEach((member, amountPaise) -> bids.add(new Bid(participants.get(member), amountPaise)));
+        return bids;
+    }
+
+    public Bid getWinningBid() {
+        int row = ledger.winningRow();
+        return row < 0 ? null : new Bid(participants.get(ledger.memberAt(row)), ledger.amountAt(row));
+    }
+
+    public void addParticipant(Participant participant) {
+        if (participantIndex.putIfAbsent(participant.getParticipantId(), participants.size()) != null) {
+            throw new IllegalArgumentException("Participant " + participant.getParticipantId() +
+                    " is already in chit fund " + chitFundId);
+        }
+        participants.add(participant);
+    }
+
+    public void addBid(Bid bid) {
+        addBid(bid.getParticipant(), bid.getBidAmount());
+    }
+
+    public void addBid(Participant participant, long amountPaise) {
+        Integer member = participantIndex.get(participant.getParticipantId());
+        if (member == null) {
+            throw new IllegalArgumentException("Participant " + participant.getParticipantId() +
+                    " is not in chit fund " + chitFundId);
+        }
+        ledger.add(member, amountPaise);
+        countBid(amountPaise);
+    }
+
+    // Adds a bid by ledger member position, for restoring a saved ledger
+    void addMemberBid(int member, long amountPaise) {
+        if (member < 0 || member >= participants.size()) {
+            throw new IllegalArgumentException("No member " + member + " in chit fund " + chitFundId);
+        }
+        ledger.add(member, amountPaise);
+        countBid(amountPaise);
+    }
+
+    private void countBid(long amountPaise) {
+        bidCount++;
+        bidTotalPaise += amountPaise;
+        highestBidPaise = Math.max(highestBidPaise, amountPaise);
+    }
+
+    public FundStats getStats() {
+        return new FundStats(chitFundId, currentMonth, numberOfMonths, participants.size(),
+                ledger.count(), ledger.max(), ledger.sum(),
+                bidCount, bidTotalPaise, highestBidPaise, settledMonths, distributedPaise, dividendPaise);
+    }
+
+    // Sets the running totals from the FundStats table after loading; bids added while
+    // loading the open month are already included there
+    void restoreTotals(long bidCount, long bidTotalPaise, long highestBidPaise, int settledMonths,
+                       long distributedPaise, long dividendPaise) {
+        this.bidCount = bidCount;
+        this.bidTotalPaise = bidTotalPaise;
+        this.highestBidPaise = highestBidPaise;
+        this.settledMonths = settledMonths;
+        this.distributedPaise = distributedPaise;
+        this.dividendPaise = dividendPaise;
+    }
+
+    // Every month has been auctioned; nothing more can be bid on or settled
+    public boolean isComplete() {
+        return currentMonth > numberOfMonths;
+    }
+
+    // A month can be auctioned once someone has bid and the fund hasn't run its course
+    public boolean isAuctionDue() {
+        return !ledger.isEmpty() && !isComplete();
+    }
+
+    // Pays the winning bid of the current month and moves on to the next auction.
+    // Returns the settlement, or null if nobody bid this month or the fund is complete.
+    public SettlementResult distributeAmount() {
+        SettlementResult result = computeSettlement(Instant.now());
+        if (result != null) {
+            applySettlement(result);
+        }
+        return result;
+    }
+
+    // Works out the current month's winner and dividend without changing anything, so
+    // funds can be settled side by side. The winner takes the winning bid; what is left
+    // of the chit value is shared equally among the members as dividend. Dividends are
+    // whole paise; a remainder smaller than one paisa per member is not paid out.
+    public SettlementResult computeSettlement(Instant settledAt) {
+        int row = ledger.winningRow();
+        if (row < 0 || isComplete()) {
+            return null;
+        }
+        long amount = ledger.amountAt(row);
+        long discount = Math.max(0, totalAmount - amount);
+        long dividendPerMember = participants.isEmpty() ? 0 : discount / participants.size();
+        return new SettlementResult(this, currentMonth, participants.get(ledger.memberAt(row)),
+                amount, dividendPerMember, settledAt);
+    }
+
+    // Pays out a result from computeSettlement and opens the next auction month
+    public void applySettlement(SettlementResult result) {
+        if (result.getChitFund() != this || result.getMonth() != currentMonth) {
+            throw new IllegalStateException("Settlement for month " + result.getMonth() +
+                    " does not match chit fund " + chitFundId + " month " + currentMonth);
+        }
+        result.getWinner().receiveAmount(result.getAmount());
+        ledger.clear();
+        currentMonth++;
+        settledMonths++;
+        distributedPaise += result.getAmount();
+        dividendPaise += result.getDividendPerMember();
+    }
+}
@@ -0,0 +1,1162 @@
+package chitfund;
+
+import javax.swing.*;
+import javax.swing.event.AncestorEvent;
+import javax.swing.event.AncestorListener;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.sql.*;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.RenderingHints;
+
+public class ChitFundUI extends JFrame {
+    private ChitFundManagementSystem system;
+    // Display Information output; everything else goes to the activity log
+    private JTextArea reportArea;
+    private ActivityLog activityLog;
+    private JTabbedPane outputTabs;
+    private ConnectionManager connections;
+    private PersistenceQueue writeQueue;
+    private SwingWorker<Void, String> reportWorker;
+    private SwingWorker<List<Exporter.ExportReport>, String> exportWorker;
+    private ModelSnapshot snapshot;
+    // Snapshot files are written off the EDT, one at a time
+    private ExecutorService snapshotWriter;
+    private javax.swing.Timer snapshotTimer;
+    // The last periodic save, so a slow one isn't queued up behind
+    private Future<?> pendingSnapshot;
+    // Set when bids and settlements go to the event log instead of the queue
+    private BidEventLog eventLog;
+    private EventLogProjector projector;
+    private javax.swing.Timer projectionTimer;
+    private ScheduledExecutorService compactor;
+    // A settlement that could not be logged; the model is ahead of the database
+    private volatile boolean eventLogFailed;
+    // All changes to funds that bidders can reach go through the desk
+    private BidDesk desk;
+    private BidServer bidServer;
+    private final Metrics metrics = Metrics.get();
+    private EdtProbe edtProbe;
+    // System.nanoTime() at JVM start, for the startup milestones
+    private long startupNanos;
+    // Enabled once the database is open, and once the model is loaded, respectively
+    private final List<JButton> databaseButtons = new ArrayList<>();
+    private final List<JButton> modelButtons = new ArrayList<>();
+    private JProgressBar startupProgress;
+    // Time the current button action has spent waiting on dialogs, and whether it failed
+    private long dialogNanos;
+    private boolean actionFailed;
+    // Attractive color scheme
+    private static final Color PRIMARY_COLOR = new Color(41, 128, 185);    // Blue
+    private static final Color ACCENT_COLOR = new Color(155, 89, 182);     // Purple
+    private static final Color SUCCESS_COLOR = new Color(46, 204, 113);    // Green
+    private static final Color WARNING_COLOR = new Color(230, 126, 34);    // Orange
+    private static final Color DANGER_COLOR = new Color(231, 76, 60);      // Red
+    private static final Color BACKGROUND_COLOR = new Color(236, 240, 241);
+    private static final Color TEXT_COLOR = new Color(44, 62, 80);
+
+    public ChitFundUI() {
+        startupNanos = System.nanoTime() - ManagementFactory.getRuntimeMXBean().getUptime() * 1_000_000;
+        // Empty until the model is loaded; the buttons that use it are disabled till then
+        system = new ChitFundManagementSystem();
+        activityLog = new ActivityLog(ActivityLog.Config.fromSystemProperties(),
+                new Font("Segoe UI", Font.PLAIN, 14), TEXT_COLOR);
+        initializeUI();
+        // Runs once the window has been painted and the EDT is free for the user
+        SwingUtilities.invokeLater(() -> startupMilestone("startup.window", "window shown"));
+        startInBackground();
+        if (metrics.isEnabled()) {
+            edtProbe = new EdtProbe(Long.getLong("chitfund.metrics.edtProbeMillis", 100L),
+                    Long.getLong("chitfund.metrics.edtStallMillis", 200L));
+        }
+    }
+
+    // Opens the database and decodes the snapshot file side by side, then loads the
+    // model. Buttons are enabled on the EDT as what they need becomes ready: the
+    // database views once the schema is current, the rest once the model is loaded.
+    private void startInBackground() {
+        ExecutorService startup = Executors.newFixedThreadPool(3, r -> {
+            Thread thread = new Thread(r, "chitfund-startup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshot = new ModelSnapshot(Paths.get(
+                System.getProperty("chitfund.snapshot.file", ModelSnapshot.DEFAULT_FILE)));
+        ModelSnapshot snapshotFile = snapshot;
+        CompletableFuture.runAsync(metrics::registerMBean, startup);
+        CompletableFuture<ModelSnapshot.Decoded> decoded = CompletableFuture.supplyAsync(snapshotFile::decode, startup);
+        CompletableFuture<Boolean> database = CompletableFuture.supplyAsync(this::initializeDatabase, startup);
+        database.thenAcceptAsync(this::databaseReady, SwingUtilities::invokeLater);
+        database.thenCombineAsync(decoded, (ready, image) -> ready ? loadDataFromDatabase(image) : null, startup)
+                .thenAcceptAsync(this::modelReady, SwingUtilities::invokeLater)
+                .whenComplete((ignored, error) -> {
+                    startup.shutdown();
+                    if (error != null) {
+                        error.printStackTrace();
+                    }
+                });
+    }
+
+    private void databaseReady(boolean ready) {
+        if (!ready) {
+            startupProgress.setIndeterminate(false);
+            startupProgress.setString("Database unavailable");
+            return;
+        }
+        for (JButton button : databaseButtons) {
+            button.setEnabled(true);
+        }
+        startupProgress.setString("Loading chit funds...");
+        startupMilestone("startup.database", "database ready");
+    }
+
+    private void modelReady(ChitFundManagementSystem loaded) {
+        if (loaded == null) {
+            startupProgress.setIndeterminate(false);
+            startupProgress.setString(connections == null ? "Database unavailable" : "Chit funds not loaded");
+            return;
+        }
+        system = loaded;
+        desk = new BidDesk(system, Integer.getInteger("chitfund.bidding.stripes", BidDesk.DEFAULT_STRIPES),
+                this::journalBid);
+        startSnapshots();
+        startEventLog();
+        startBidServer();
+        for (JButton button : modelButtons) {
+            button.setEnabled(true);
+        }
+        startupProgress.setVisible(false);
+        startupMilestone("startup.ready", "all actions ready");
+    }
+
+    // Records how long after JVM start a stage of startup finished
+    private void startupMilestone(String name, String description) {
+        long nanos = System.nanoTime() - startupNanos;
+        metrics.operation(name).recordNanos(nanos, false);
+        String line = "Startup: " + description + " after " + nanos / 1_000_000 + " ms";
+        System.out.println(line);
+        activityLog.append(line);
+    }
+
+    // Runs on a startup thread; true once the database is open and its schema current
+    private boolean initializeDatabase() {
+        try {
+            // Try to load the SQLite JDBC driver
+            try {
+                Class.forName("org.sqlite.JDBC");
+            } catch (ClassNotFoundException e) {
+                // If driver not found, show detailed error message
+                showErrorLater(
+                    "SQLite JDBC Driver not found!\n\n" +
+                    "Please make sure:\n" +
+                    "1. You have downloaded sqlite-jdbc-3.36.0.3.jar\n" +
+                    "2. The JAR file is in the 'lib' folder\n" +
+                    "3. You are running the program using compile_and_run.bat\n\n" +
+                    "Error details: " + e.getMessage());
+                return false;
+            }
+
+            // Create a connection to the database
+            try {
+                connections = new ConnectionManager(ConnectionManager.Config.fromSystemProperties());
+
+                // Create tables if they don't exist and upgrade older schemas in place
+                SchemaMigrations.migrate(connections.getWriter().getConnection());
+
+                // Writes go through the writer connection on a background thread
+                writeQueue = new PersistenceQueue(connections.getWriter(),
+                    PersistenceQueue.DurabilityMode.valueOf(
+                        System.getProperty("chitfund.persistence.mode", "GROUP_COMMIT")),
+                    Integer.getInteger("chitfund.persistence.queueCapacity", 10000),
+                    Integer.getInteger("chitfund.persistence.batchSize", 500),
+                    Long.getLong("chitfund.persistence.maxDelayMillis", 50L),
+                    SwingUtilities::invokeLater);
+
+                // With the event log on, bring the tables up to date with it before
+                // the model is loaded from them
+                if (BidEventLog.isEnabled()) {
+                    eventLog = BidEventLog.open(BidEventLog.Config.fromSystemProperties());
+                    projector = new EventLogProjector(eventLog);
+                    projectEventLog();
+                    writeQueue.flush();
+                }
+
+                // Show success message
+                System.out.println("Database initialized successfully!");
+                return true;
+            } catch (SQLException e) {
+                showErrorLater(
+                    "Database connection failed!\n\n" +
+                    "Error details: " + e.getMessage());
+                e.printStackTrace();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            showErrorLater(
+                "Unexpected error during database initialization!\n\n" +
+                "Error details: " + e.getMessage());
+        }
+        return false;
+    }
+
+    // Startup threads can't open dialogs themselves
+    private void showErrorLater(String message) {
+        SwingUtilities.invokeLater(() ->
+                JOptionPane.showMessageDialog(this, message, "Database Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    // Runs on a startup thread with the snapshot already decoded; null if loading failed
+    private ChitFundManagementSystem loadDataFromDatabase(ModelSnapshot.Decoded decoded) {
+        long start = Metrics.start();
+        try {
+            // Start from the last snapshot plus newer rows; falls back to a full load
+            ModelSnapshot.RestoreReport report = connections.read(c -> snapshot.restore(c.getConnection(),
+                    Integer.getInteger("chitfund.load.fetchSize", ChitFundLoader.DEFAULT_FETCH_SIZE), decoded));
+            ChitFundManagementSystem loaded = report.getSystem();
+            // Sorting the search indexes takes a while at a million participants; do it
+            // where autocomplete queries run rather than holding up startup
+            AutocompleteField.prepare(loaded::compactSearch);
+            System.out.println(report);
+            metrics.operation("load.startup").record(start);
+            return loaded;
+        } catch (Exception e) {
+            metrics.operation("load.startup").recordError(start);
+            e.printStackTrace();
+            showErrorLater("Error loading data from database: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void startSnapshots() {
+        if (snapshot == null || writeQueue == null) {
+            return;
+        }
+        snapshotWriter = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "chitfund-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int intervalSeconds = Integer.getInteger("chitfund.snapshot.intervalSeconds", 300);
+        if (intervalSeconds > 0) {
+            snapshotTimer = new javax.swing.Timer(intervalSeconds * 1000, e -> saveSnapshot(false));
+            snapshotTimer.start();
+        }
+    }
+
+    private void startEventLog() {
+        if (eventLog == null) {
+            return;
+        }
+        int projectMillis = Integer.getInteger("chitfund.eventlog.projectIntervalMillis", 1000);
+        projectionTimer = new javax.swing.Timer(projectMillis, e -> projectEventLog());
+        projectionTimer.start();
+
+        long compactSeconds = Long.getLong("chitfund.eventlog.compactIntervalSeconds", 60L);
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "chitfund-eventlog-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactEventLog, compactSeconds, compactSeconds, TimeUnit.SECONDS);
+    }
+
+    // Queues a pass of the projector behind whatever has already been submitted
+    private void projectEventLog() {
+        if (projector == null) {
+            return;
+        }
+        writeQueue.submit(error -> {
+            if (error != null) {
+                error.printStackTrace();
+                activityLog.append("Error updating the database from the event log: " + error.getMessage());
+            }
+        }, projector);
+    }
+
+    // Accepts bids from branch terminals when chitfund.http.port is set
+    private void startBidServer() {
+        int port = Integer.getInteger("chitfund.http.port", -1);
+        if (port < 0 || writeQueue == null) {
+            return;
+        }
+        try {
+            bidServer = new BidServer(desk,
+                    new InetSocketAddress(System.getProperty("chitfund.http.bind", "127.0.0.1"), port),
+                    Integer.getInteger("chitfund.http.threads", BidServer.DEFAULT_THREADS));
+            System.out.println("Accepting bids on http://" + bidServer.getAddress().getHostString() + ":" +
+                    bidServer.getAddress().getPort() + "/bids");
+        } catch (IOException e) {
+            e.printStackTrace();
+            tell("Could not start the bidding endpoint: " + e.getMessage());
+        }
+    }
+
+    // Saves a bid placed here or through the endpoint. It runs under the fund's lock on
+    // the bidding thread, before the bid is added to the model.
+    private void journalBid(ChitFundSystem fund, Participant participant, long amountPaise, int auctionMonth)
+            throws IOException {
+        if (eventLog != null) {
+            eventLog.appendBid(fund.getChitFundId(), participant.getParticipantId(), amountPaise, auctionMonth);
+            return;
+        }
+        writeQueue.submit(error -> {
+            if (error != null) {
+                reportWriteFailure("Error making bid", error);
+            }
+        }, AuctionEngine.bidWrite(fund, participant, amountPaise, auctionMonth));
+    }
+
+    // Runs on the compactor thread; only events already in the tables are folded
+    private void compactEventLog() {
+        try {
+            long projected = connections.read(c -> EventLogProjector.readPosition(c.getConnection()));
+            int removed = eventLog.compact(projected);
+            if (removed > 0) {
+                System.out.println("Compacted event log: " + removed + " bid records folded into month summaries");
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Called on the EDT; the work runs on the snapshot writer thread. Every BidDesk
+    // stripe is held while pending writes are committed and the image is encoded, so
+    // it matches the database marks it records and no bid or model change lands in
+    // between. Only closing the window waits for it.
+    private void saveSnapshot(boolean wait) {
+        if (snapshotWriter == null) {
+            return;
+        }
+        if (!wait && pendingSnapshot != null && !pendingSnapshot.isDone()) {
+            return;
+        }
+        pendingSnapshot = snapshotWriter.submit(() -> {
+            long start = System.nanoTime();
+            byte[] image = desk.withAllFunds(() -> {
+                projectEventLog();
+                writeQueue.flush();
+                if (writeQueue.getFailedCount() > 0 || eventLogFailed) {
+                    return null;
+                }
+                return connections.read(c -> snapshot.encode(system, c.getConnection()));
+            });
+            if (image == null) {
+                // Some changes never reached the database, so the model no longer matches it
+                snapshot.delete();
+                return null;
+            }
+            snapshot.write(image);
+            System.out.println("Saved snapshot (" + image.length + " bytes) in " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms");
+            return null;
+        });
+        if (wait) {
+            try {
+                pendingSnapshot.get();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void initializeUI() {
+        setTitle("Chit Fund System");
+        setSize(800, 500);
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent evt) {
+                // Commit anything still queued and snapshot the model before the JVM exits
+                if (bidServer != null) {
+                    bidServer.close();
+                }
+                if (exportWorker != null) {
+                    // Stops at its next progress check; the unfinished file is removed
+                    exportWorker.cancel(false);
+                }
+                if (snapshotTimer != null) {
+                    snapshotTimer.stop();
+                }
+                if (projectionTimer != null) {
+                    projectionTimer.stop();
+                    compactor.shutdown();
+                }
+                if (edtProbe != null) {
+                    edtProbe.close();
+                }
+                saveSnapshot(true);
+                if (snapshotWriter != null) {
+                    snapshotWriter.shutdown();
+                }
+                if (writeQueue != null) {
+                    projectEventLog();
+                    writeQueue.close();
+                }
+                if (eventLog != null) {
+                    eventLog.close();
+                }
+                if (connections != null) {
+                    connections.close();
+                }
+                activityLog.close();
+            }
+        });
+        setLayout(new BorderLayout(0, 0));
+        getContentPane().setBackground(BACKGROUND_COLOR);
+
+        // Title panel with gradient effect
+        JPanel titlePanel = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                Graphics2D g2d = (Graphics2D) g;
+                g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                int w = getWidth();
+                int h = getHeight();
+                GradientPaint gp = new GradientPaint(0, 0, PRIMARY_COLOR, w, 0, ACCENT_COLOR);
+                g2d.setPaint(gp);
+                g2d.fillRect(0, 0, w, h);
+            }
+        };
+        titlePanel.setLayout(new FlowLayout(FlowLayout.CENTER));
+        titlePanel.setPreferredSize(new Dimension(800, 50));
+
+        JLabel titleLabel = new JLabel("Chit Fund System");
+        titleLabel.setFont(new Font("Segoe UI", Font.BOLD, 24));
+        titleLabel.setForeground(Color.WHITE);
+        titlePanel.add(titleLabel);
+
+        // Main content panel
+        JPanel mainPanel = new JPanel(new BorderLayout(5, 5));
+        mainPanel.setBackground(BACKGROUND_COLOR);
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+
+        // Button panel with grid layout
+        JPanel buttonPanel = new JPanel(new GridLayout(0, 1, 5, 5));
+        buttonPanel.setBackground(BACKGROUND_COLOR);
+
+        // Create colorful buttons
+        JButton createChitFundBtn = createColorfulButton("Create Chit Fund", PRIMARY_COLOR);
+        JButton addParticipantBtn = createColorfulButton("Add Participant", ACCENT_COLOR);
+        JButton makeBidBtn = createColorfulButton("Make Bid", SUCCESS_COLOR);
+        JButton recordPaymentBtn = createColorfulButton("Record Payment", new Color(41, 128, 185));
+        JButton conductBiddingBtn = createColorfulButton("Conduct Bidding", WARNING_COLOR);
+        JButton displayInfoBtn = createColorfulButton("Display Information", DANGER_COLOR);
+        JButton showDatabaseBtn = createColorfulButton("Show Database Data", new Color(142, 68, 173));
+        JButton dashboardBtn = createColorfulButton("Dashboard", new Color(22, 160, 133));
+        JButton exportBtn = createColorfulButton("Export Data", new Color(52, 73, 94));
+
+        // Add buttons to panel
+        buttonPanel.add(createChitFundBtn);
+        buttonPanel.add(addParticipantBtn);
+        buttonPanel.add(makeBidBtn);
+        buttonPanel.add(recordPaymentBtn);
+        buttonPanel.add(conductBiddingBtn);
+        buttonPanel.add(displayInfoBtn);
+        buttonPanel.add(showDatabaseBtn);
+        buttonPanel.add(dashboardBtn);
+        buttonPanel.add(exportBtn);
+
+        // Add action listeners
+        createChitFundBtn.addActionListener(e -> timed("ui.createChitFund", this::createChitFund));
+        addParticipantBtn.addActionListener(e -> timed("ui.addParticipant", this::addParticipant));
+        makeBidBtn.addActionListener(e -> timed("ui.makeBid", this::makeBid));
+        recordPaymentBtn.addActionListener(e -> timed("ui.recordPayment", this::recordPayment));
+        conductBiddingBtn.addActionListener(e -> timed("ui.conductBidding", this::conductBidding));
+        displayInfoBtn.addActionListener(e -> timed("ui.displayInformation", this::displayInformation));
+        showDatabaseBtn.addActionListener(e -> timed("ui.showDatabaseData", this::showDatabaseData));
+        dashboardBtn.addActionListener(e -> timed("ui.showDashboard", this::showDashboard));
+        exportBtn.addActionListener(e -> timed("ui.exportData", this::exportData));
+
+        // Nothing works until startup has got far enough
+        modelButtons.addAll(Arrays.asList(createChitFundBtn, addParticipantBtn, makeBidBtn, recordPaymentBtn,
+                conductBiddingBtn));
+        databaseButtons.addAll(Arrays.asList(displayInfoBtn, showDatabaseBtn, dashboardBtn, exportBtn));
+        for (JButton button : modelButtons) {
+            button.setEnabled(false);
+        }
+        for (JButton button : databaseButtons) {
+            button.setEnabled(false);
+        }
+        startupProgress = new JProgressBar();
+        startupProgress.setIndeterminate(true);
+        startupProgress.setStringPainted(true);
+        startupProgress.setString("Opening database...");
+
+        // Ctrl+M writes the current metrics to the activity log and the console
+        getRootPane().registerKeyboardAction(e -> dumpMetrics(),
+                KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_M, java.awt.event.InputEvent.CTRL_DOWN_MASK),
+                JComponent.WHEN_IN_FOCUSED_WINDOW);
+
+        // Report area with modern styling; the report is rebuilt on every request, so
+        // it doesn't grow without bound
+        reportArea = new JTextArea();
+        reportArea.setEditable(false);
+        reportArea.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        reportArea.setBackground(Color.WHITE);
+        reportArea.setForeground(TEXT_COLOR);
+        reportArea.setLineWrap(true);
+        reportArea.setWrapStyleWord(true);
+
+        JScrollPane reportPane = new JScrollPane(reportArea);
+        reportPane.setBorder(BorderFactory.createEmptyBorder(2, 2, 2, 2));
+        activityLog.setBorder(BorderFactory.createEmptyBorder(2, 2, 2, 2));
+
+        outputTabs = new JTabbedPane();
+        outputTabs.addTab("Activity", activityLog);
+        outputTabs.addTab("Report", reportPane);
+        outputTabs.setBorder(BorderFactory.createLineBorder(PRIMARY_COLOR, 1));
+
+        // Add components
+        mainPanel.add(buttonPanel, BorderLayout.WEST);
+        mainPanel.add(outputTabs, BorderLayout.CENTER);
+
+        add(titlePanel, BorderLayout.NORTH);
+        add(mainPanel, BorderLayout.CENTER);
+        add(startupProgress, BorderLayout.SOUTH);
+
+        setLocationRelativeTo(null);
+        setVisible(true);
+    }
+
+    // Runs a button action on the EDT and records how long it held the EDT, leaving out
+    // time spent waiting for the user in dialogs
+    private void timed(String name, Runnable action) {
+        dialogNanos = 0;
+        actionFailed = false;
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            actionFailed = true;
+            throw e;
+        } finally {
+            metrics.operation(name).recordNanos(System.nanoTime() - start - dialogNanos, actionFailed);
+        }
+    }
+
+    private String ask(String prompt) {
+        long start = System.nanoTime();
+        try {
+            return JOptionPane.showInputDialog(prompt);
+        } finally {
+            dialogNanos += System.nanoTime() - start;
+        }
+    }
+
+    // Shows labelled fields in one dialog, focused on the first; false if cancelled
+    private boolean askForm(String title, String[] labels, JComponent... fields) {
+        JPanel form = new JPanel(new GridLayout(0, 2, 5, 5));
+        for (int i = 0; i < fields.length; i++) {
+            form.add(new JLabel(labels[i]));
+            form.add(fields[i]);
+        }
+        fields[0].addAncestorListener(new AncestorListener() {
+            @Override
+            public void ancestorAdded(AncestorEvent e) {
+                e.getComponent().requestFocusInWindow();
+            }
+
+            @Override
+            public void ancestorRemoved(AncestorEvent e) {
+            }
+
+            @Override
+            public void ancestorMoved(AncestorEvent e) {
+            }
+        });
+        long start = System.nanoTime();
+        try {
+            return JOptionPane.showConfirmDialog(this, form, title, JOptionPane.OK_CANCEL_OPTION,
+                    JOptionPane.PLAIN_MESSAGE) == JOptionPane.OK_OPTION;
+        } finally {
+            dialogNanos += System.nanoTime() - start;
+        }
+    }
+
+    // Completes fund IDs
+    private AutocompleteField fundField() {
+        return new AutocompleteField(16, (prefix, limit) -> () -> {
+            List<AutocompleteField.Suggestion> found = new ArrayList<>();
+            for (ChitFundSystem fund : system.searchFunds(prefix, limit)) {
+                found.add(new AutocompleteField.Suggestion(fund.getChitFundId(), fund.getChitFundId() + " - " +
+                        Money.format(fund.getTotalAmount()) + " over " + fund.getNumberOfMonths() + " months"));
+            }
+            return found;
+        });
+    }
+
+    // Completes the IDs and names of every known participant
+    private AutocompleteField participantField() {
+        return new AutocompleteField(16, (prefix, limit) -> () -> suggest(system.searchParticipants(prefix, limit)));
+    }
+
+    // Completes the members of the fund entered in fundField
+    private AutocompleteField memberField(JTextField fundField) {
+        return new AutocompleteField(16, (prefix, limit) -> {
+            ChitFundSystem fund = system.findFund(fundField.getText().trim());
+            if (fund == null) {
+                return List::of;
+            }
+            return () -> suggest(desk.withFund(fund, () -> fund.searchMembers(prefix, limit)));
+        });
+    }
+
+    private static List<AutocompleteField.Suggestion> suggest(List<Participant> participants) {
+        List<AutocompleteField.Suggestion> found = new ArrayList<>(participants.size());
+        for (Participant participant : participants) {
+            found.add(new AutocompleteField.Suggestion(participant.getParticipantId(),
+                    participant.getParticipantId() + " - " + participant.getName()));
+        }
+        return found;
+    }
+
+    private void tell(String message) {
+        long start = System.nanoTime();
+        try {
+            JOptionPane.showMessageDialog(this, message);
+        } finally {
+            dialogNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void showError(String message) {
+        actionFailed = true;
+        tell(message);
+    }
+
+    private void dumpMetrics() {
+        String dump = metrics.dump();
+        System.out.print(dump);
+        activityLog.append(dump);
+    }
+
+    private JButton createColorfulButton(String text, Color color) {
+        JButton button = new JButton(text);
+        button.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        button.setForeground(Color.WHITE);
+        button.setBackground(color);
+        button.setFocusPainted(false);
+        button.setBorderPainted(false);
+        button.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        button.setPreferredSize(new Dimension(180, 40));
+
+        // Modern hover effect
+        button.addMouseListener(new java.awt.event.MouseAdapter() {
+            public void mouseEntered(java.awt.event.MouseEvent evt) {
+                button.setBackground(color.darker());
+            }
+
+            public void mouseExited(java.awt.event.MouseEvent evt) {
+                button.setBackground(color);
+            }
+        });
+
+        return button;
+    }
+
+    private void createChitFund() {
+        String id = ask("Enter Chit Fund ID:");
+        String amountStr = ask("Enter Total Amount:");
+        String monthsStr = ask("Enter Number of Months:");
+
+        if (system.findFund(id) != null) {
+            tell("Chit fund " + id + " already exists");
+            return;
+        }
+
+        long amount;
+        int months;
+        try {
+            amount = Money.parse(amountStr);
+            try {
+                months = Integer.parseInt(monthsStr == null ? "" : monthsStr.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad number of months '" + monthsStr + "'");
+            }
+            ChitFundSystem.checkTerms(amount, months);
+        } catch (IllegalArgumentException e) {
+            tell("Chit fund " + id + " not created: " + e.getMessage());
+            return;
+        }
+
+        try {
+            ChitFundSystem chitFund = new ChitFundSystem(id, amount, months);
+            // Added and saved under the new fund's lock, so a snapshot being taken
+            // sees both or neither
+            desk.withFund(chitFund, () -> {
+                system.addChitFund(chitFund);
+                writeQueue.submit(error -> {
+                    if (error != null) {
+                        reportWriteFailure("Error creating chit fund", error);
+                    } else {
+                        activityLog.append("Created new Chit Fund: " + id);
+                    }
+                }, PersistenceQueue.write(
+                    "INSERT INTO ChitFund (id, totalAmountPaise, numberOfMonths) VALUES (?, ?, ?)", id, amount, months));
+                return null;
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+            showError("Error creating chit fund: " + e.getMessage());
+        }
+    }
+
+    private void addParticipant() {
+        if (system.getChitFunds().isEmpty()) {
+            tell("No chit funds available");
+            return;
+        }
+
+        AutocompleteField fundField = fundField();
+        AutocompleteField participantField = participantField();
+        JTextField nameField = new JTextField(16);
+        if (!askForm("Add Participant", new String[] {"Chit Fund ID:", "Participant ID:", "Participant Name:"},
+                fundField, participantField, nameField)) {
+            return;
+        }
+        String chitFundId = fundField.getText().trim();
+        String participantId = participantField.getText().trim();
+        String name = nameField.getText().trim();
+
+        ChitFundSystem chitFund = system.findFund(chitFundId);
+        if (chitFund == null) {
+            tell("Chit fund not found");
+            return;
+        }
+        if (chitFund.findParticipant(participantId) != null) {
+            tell("Participant " + participantId + " is already in this chit fund");
+            return;
+        }
+
+        // A participant who already belongs to another fund joins this one as well
+        Participant existing = system.getParticipant(participantId);
+
+        try {
+            Participant participant = existing != null ? existing : new Participant(participantId, name);
+            List<PersistenceQueue.Write> writes = new ArrayList<>();
+            if (existing == null) {
+                writes.add(PersistenceQueue.write(
+                    "INSERT INTO Participant (id, name, amountReceivedPaise) VALUES (?, ?, ?)", participantId, name, 0L));
+            }
+            writes.add(PersistenceQueue.write(
+                "INSERT INTO ChitFundParticipant (chitFundId, participantId) VALUES (?, ?)", chitFundId, participantId));
+            // Added and saved under the fund's lock, so a snapshot being taken sees both
+            // or neither
+            desk.withFund(chitFund, () -> {
+                system.addParticipantToChitFund(chitFundId, participant);
+                writeQueue.submit(error -> {
+                    if (error != null) {
+                        reportWriteFailure("Error adding participant", error);
+                    } else {
+                        activityLog.append("Added participant " + participant.getName() + " to chit fund " + chitFundId);
+                    }
+                }, writes.toArray(new PersistenceQueue.Write[0]));
+                return null;
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+            showError("Error adding participant: " + e.getMessage());
+        }
+    }
+
+    private void makeBid() {
+        if (system.getChitFunds().isEmpty()) {
+            tell("No chit funds available");
+            return;
+        }
+
+        AutocompleteField fundField = fundField();
+        AutocompleteField memberField = memberField(fundField);
+        JTextField amountField = new JTextField(16);
+        if (!askForm("Make Bid", new String[] {"Chit Fund ID:", "Participant ID:", "Bid Amount:"},
+                fundField, memberField, amountField)) {
+            return;
+        }
+        String chitFundId = fundField.getText().trim();
+        String participantId = memberField.getText().trim();
+        String bidAmountStr = amountField.getText().trim();
+
+        ChitFundSystem cf = system.findFund(chitFundId);
+        if (cf == null) {
+            tell("Chit fund not found");
+            return;
+        }
+        Participant participant = cf.findParticipant(participantId);
+        if (participant == null) {
+            tell("Participant not found in Chit Fund");
+            return;
+        }
+
+        try {
+            // Saved first, so a failed append leaves the model untouched
+            long bidAmount = Money.parse(bidAmountStr);
+            desk.placeBid(chitFundId, participantId, bidAmount);
+            activityLog.append("Bid of " + Money.format(bidAmount) + " made by participant " + participant.getName());
+        } catch (Exception e) {
+            e.printStackTrace();
+            showError("Error making bid: " + e.getMessage());
+        }
+    }
+
+    // A member's installment payment. Balances in the dues ledger include it from the
+    // next month-end run.
+    private void recordPayment() {
+        if (system.getChitFunds().isEmpty()) {
+            tell("No chit funds available");
+            return;
+        }
+
+        AutocompleteField fundField = fundField();
+        AutocompleteField memberField = memberField(fundField);
+        JTextField amountField = new JTextField(16);
+        if (!askForm("Record Payment", new String[] {"Chit Fund ID:", "Participant ID:", "Amount Paid:"},
+                fundField, memberField, amountField)) {
+            return;
+        }
+        String chitFundId = fundField.getText().trim();
+        String participantId = memberField.getText().trim();
+
+        ChitFundSystem cf = system.findFund(chitFundId);
+        if (cf == null) {
+            tell("Chit fund not found");
+            return;
+        }
+        Participant participant = cf.findParticipant(participantId);
+        if (participant == null) {
+            tell("Participant not found in Chit Fund");
+            return;
+        }
+
+        try {
+            long amount = Money.parse(amountField.getText().trim());
+            if (amount <= 0) {
+                tell("Amount must be positive");
+                return;
+            }
+            writeQueue.submit(error -> {
+                if (error != null) {
+                    reportWriteFailure("Error recording payment", error);
+                } else {
+                    activityLog.append("Payment of " + Money.format(amount) + " from " + participant.getName() +
+                            " to chit fund " + chitFundId);
+                }
+            }, PersistenceQueue.write(InstallmentEngine.INSERT_PAYMENT,
+                    chitFundId, participantId, amount, Instant.now().toString()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            showError("Error recording payment: " + e.getMessage());
+        }
+    }
+
+    private void conductBidding() {
+        if (system.getChitFunds().isEmpty()) {
+            tell("No chit funds available");
+            return;
+        }
+
+        AutocompleteField fundField = fundField();
+        if (!askForm("Conduct Bidding", new String[] {"Chit Fund ID:"}, fundField)) {
+            return;
+        }
+        String chitFundId = fundField.getText().trim();
+        ChitFundSystem cf = system.findFund(chitFundId);
+        if (cf == null) {
+            tell("Chit fund not found");
+            return;
+        }
+        if (cf.isComplete()) {
+            tell("Chit fund " + chitFundId + " has run all its " + cf.getNumberOfMonths() + " months");
+            return;
+        }
+        SettlementResult result;
+        try {
+            // Settled and saved with the fund's bidders held off, so no bid lands between
+            // the winner being chosen and the next month opening, and no bid for the next
+            // month is saved ahead of the settlement that opens it
+            result = desk.withFund(cf, () -> {
+                SettlementResult settled = system.conductBidding(chitFundId);
+                if (settled == null) {
+                    return null;
+                }
+                if (eventLog != null) {
+                    try {
+                        eventLog.appendSettlement(settled);
+                    } catch (IOException e) {
+                        eventLogFailed = true;
+                        throw e;
+                    }
+                    activityLog.append("Month " + settled.getMonth() + " of chit fund " + chitFundId +
+                            " settled to " + settled.getWinner().getName());
+                } else {
+                    // Save the payout and open the next auction month
+                    writeQueue.submit(error -> {
+                        if (error != null) {
+                            reportWriteFailure("Error saving bidding result", error);
+                        } else {
+                            activityLog.append("Month " + settled.getMonth() + " of chit fund " + chitFundId +
+                                    " settled to " + settled.getWinner().getName());
+                        }
+                    }, AuctionEngine.settlementWrites(settled));
+                }
+                return settled;
+            });
+        } catch (Exception e) {
+            e.printStackTrace();
+            showError("Error saving bidding result: " + e.getMessage());
+            return;
+        }
+        if (result == null) {
+            tell("No bids available for distribution.");
+            return;
+        }
+        tell("Amount " + Money.format(result.getAmount()) +
+                " distributed to: " + result.getWinner().getName());
+    }
+
+    private void reportWriteFailure(String message, SQLException error) {
+        error.printStackTrace();
+        activityLog.append(message + " (not saved): " + error.getMessage());
+        tell(message + ": " + error.getMessage());
+    }
+
+    private void displayInformation() {
+        // Starting a new report cancels one that is still running
+        if (reportWorker != null && !reportWorker.isDone()) {
+            reportWorker.cancel(true);
+        }
+        reportArea.setText("");
+        outputTabs.setSelectedIndex(1);
+        projectEventLog();
+
+        reportWorker = new SwingWorker<Void, String>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                // Make sure queued writes and logged events are visible to the report
+                writeQueue.flush();
+                Metrics.Operation render = metrics.operation("report.render");
+                long start = Metrics.start();
+                try {
+                    connections.read(c -> new ReportEngine(c.getConnection(),
+                            Integer.getInteger("chitfund.report.pageLines", ReportEngine.DEFAULT_PAGE_LINES))
+                            .render(this::publish, this::isCancelled));
+                    render.record(start);
+                } catch (SQLException e) {
+                    render.recordError(start);
+                    throw e;
+                }
+                return null;
+            }
+
+            @Override
+            protected void process(List<String> pages) {
+                if (isCancelled()) {
+                    return;
+                }
+                for (String page : pages) {
+                    reportArea.append(page);
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    get();
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    cause.printStackTrace();
+                    activityLog.append("Error displaying information: " + cause.getMessage());
+                }
+            }
+        };
+        reportWorker.execute();
+    }
+
+    private void showDatabaseData() {
+        try {
+            projectEventLog();
+            writeQueue.flush();
+
+            // Create a new window for displaying database data
+            JFrame dataFrame = new JFrame("Database Data");
+            dataFrame.setSize(800, 600);
+            dataFrame.setLayout(new BorderLayout());
+
+            // Create tabbed pane
+            JTabbedPane tabbedPane = new JTabbedPane();
+
+            // ChitFund Table
+            JTable chitFundTable = createTable("ChitFund");
+            tabbedPane.addTab("Chit Funds", new JScrollPane(chitFundTable));
+
+            // Participant Table
+            JTable participantTable = createTable("Participant");
+            tabbedPane.addTab("Participants", new JScrollPane(participantTable));
+
+            // Bid Table
+            JTable bidTable = createTable("Bid");
+            tabbedPane.addTab("Bids", new JScrollPane(bidTable));
+
+            // Schedule and dues as of the last month-end run, and payments since
+            tabbedPane.addTab("Installments", new JScrollPane(createTable("Installment")));
+            tabbedPane.addTab("Dues", new JScrollPane(createTable("MemberDues")));
+            tabbedPane.addTab("Payments", new JScrollPane(createTable("Payment")));
+
+            dataFrame.add(tabbedPane, BorderLayout.CENTER);
+            dataFrame.setLocationRelativeTo(this);
+            dataFrame.setVisible(true);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            showError("Error loading database data: " + e.getMessage());
+        }
+    }
+
+    // Per-fund totals from the FundStats table, which is one row per fund however many
+    // bids there are
+    private void showDashboard() {
+        try {
+            projectEventLog();
+            writeQueue.flush();
+
+            FundStatsTable.Totals totals = connections.read(c -> FundStatsTable.totals(c.getConnection()));
+            JLabel summary = new JLabel(totals.toString());
+            summary.setFont(new Font("Segoe UI", Font.BOLD, 14));
+            summary.setForeground(TEXT_COLOR);
+            summary.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+
+            JTable statsTable = createTable("FundStats");
+            DefaultTableCellRenderer money = new DefaultTableCellRenderer() {
+                @Override
+                protected void setValue(Object value) {
+                    setText(value instanceof Number ? Money.format(((Number) value).longValue()) : String.valueOf(value));
+                }
+            };
+            money.setHorizontalAlignment(SwingConstants.RIGHT);
+            for (int i = 0; i < statsTable.getColumnCount(); i++) {
+                if (statsTable.getColumnName(i).endsWith("Paise")) {
+                    statsTable.getColumnModel().getColumn(i).setCellRenderer(money);
+                }
+            }
+
+            JFrame dashboardFrame = new JFrame("Dashboard");
+            dashboardFrame.setSize(900, 500);
+            dashboardFrame.setLayout(new BorderLayout());
+            dashboardFrame.add(summary, BorderLayout.NORTH);
+            dashboardFrame.add(new JScrollPane(statsTable), BorderLayout.CENTER);
+            dashboardFrame.setLocationRelativeTo(this);
+            dashboardFrame.setVisible(true);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            showError("Error loading dashboard: " + e.getMessage());
+        }
+    }
+
+    // Writes extracts in the background; progress goes to the activity log
+    private void exportData() {
+        if (exportWorker != null && !exportWorker.isDone()) {
+            tell("An export is already running");
+            return;
+        }
+        JComboBox<String> datasetBox = new JComboBox<>();
+        datasetBox.addItem("all");
+        for (Exporter.Dataset dataset : Exporter.Dataset.values()) {
+            datasetBox.addItem(dataset.getFileName());
+        }
+        JComboBox<Exporter.Format> formatBox = new JComboBox<>(Exporter.Format.values());
+        JCheckBox gzipBox = new JCheckBox("gzip");
+        JTextField dirField = new JTextField(System.getProperty("chitfund.export.dir", "export"), 16);
+        if (!askForm("Export Data", new String[] {"Data:", "Format:", "Compress:", "Directory:"},
+                datasetBox, formatBox, gzipBox, dirField)) {
+            return;
+        }
+        String choice = (String) datasetBox.getSelectedItem();
+        List<Exporter.Dataset> datasets = "all".equals(choice)
+                ? Arrays.asList(Exporter.Dataset.values())
+                : Collections.singletonList(Exporter.Dataset.parse(choice));
+        Exporter.Format format = (Exporter.Format) formatBox.getSelectedItem();
+        boolean gzip = gzipBox.isSelected();
+        Path dir = Paths.get(dirField.getText().trim());
+        projectEventLog();
+
+        activityLog.append("Exporting " + choice + " as " + format + (gzip ? " (gzip)" : "") + " to " +
+                dir.toAbsolutePath());
+        exportWorker = new SwingWorker<List<Exporter.ExportReport>, String>() {
+            @Override
+            protected List<Exporter.ExportReport> doInBackground() throws Exception {
+                // Include what is still queued
+                writeQueue.flush();
+                Metrics.Operation export = metrics.operation("export.run");
+                long start = Metrics.start();
+                try {
+                    List<Exporter.ExportReport> reports = connections.read(c -> {
+                        try {
+                            return new Exporter(c.getConnection(),
+                                    Integer.getInteger("chitfund.export.fetchSize", Exporter.DEFAULT_FETCH_SIZE),
+                                    Integer.getInteger("chitfund.export.bufferBytes", Exporter.DEFAULT_BUFFER_BYTES))
+                                    .export(datasets, format, gzip, dir, progress -> publish(progress.toString()),
+                                            this::isCancelled);
+                        } catch (IOException e) {
+                            throw new SQLException("Error writing export: " + e.getMessage(), e);
+                        }
+                    });
+                    export.record(start);
+                    return reports;
+                } catch (SQLException e) {
+                    export.recordError(start);
+                    throw e;
+                }
+            }
+
+            @Override
+            protected void process(List<String> lines) {
+                for (String line : lines) {
+                    activityLog.append(line);
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    activityLog.append("Export cancelled");
+                    return;
+                }
+                try {
+                    for (Exporter.ExportReport report : get()) {
+                        activityLog.append(report.toString());
+                    }
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    cause.printStackTrace();
+                    activityLog.append("Error exporting data: " + cause.getMessage());
+                }
+            }
+        };
+        exportWorker.execute();
+    }
+
+    private JTable createTable(String table) throws SQLException {
+        // Rows are read lazily as the table scrolls
+        return new JTable(new PagedTableModel(connections, table,
+                Integer.getInteger("chitfund.table.pageSize", PagedTableModel.DEFAULT_PAGE_SIZE),
+                Integer.getInteger("chitfund.table.cachedPages", PagedTableModel.DEFAULT_CACHED_PAGES)));
+    }
+}
@@ -0,0 +1,279 @@
+package chitfund;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compact binary columnar format for exports. Rows are written in groups of up to
+// ROWS_PER_GROUP; within a group each column is stored on its own, so only one group
+// is ever held in memory on either side.
+//
+// Layout: magic, format version, column count, then each column's name and type;
+// then row groups, each a row count followed by one block per column; a row count of
+// 0 ends the file. Numbers are unsigned LEB128 varints. A block is its byte length,
+// a null flag (followed by a bitmap with a bit set per null row when 1), and the
+// non-null values: integers as zigzag varints of the difference from the previous
+// value, text as a dictionary of the group's distinct strings followed by an index
+// into it per row.
+public final class ColumnarFile {
+    public static final int FORMAT_VERSION = 1;
+    public static final int ROWS_PER_GROUP = 8192;
+
+    private static final int MAGIC = 0x43464331;
+
+    public enum Type { TEXT, INTEGER }
+
+    private ColumnarFile() {
+    }
+
+    public static final class Writer {
+        private final DataOutputStream out;
+        private final Type[] types;
+        private final Object[][] group;
+        private int rows;
+
+        public Writer(OutputStream out, String[] names, Type[] types) throws IOException {
+            this.out = new DataOutputStream(out);
+            this.types = types.clone();
+            this.group = new Object[types.length][ROWS_PER_GROUP];
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(FORMAT_VERSION);
+            writeVarint(this.out, names.length);
+            for (int i = 0; i < names.length; i++) {
+                byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+                writeVarint(this.out, name.length);
+                this.out.write(name);
+                this.out.writeByte(types[i].ordinal());
+            }
+        }
+
+        // Values are Strings for TEXT columns and Longs for INTEGER ones, or null
+        public void write(Object[] row) throws IOException {
+            for (int i = 0; i < types.length; i++) {
+                group[i][rows] = row[i];
+            }
+            if (++rows == ROWS_PER_GROUP) {
+                flushGroup();
+            }
+        }
+
+        // Writes the last group and the end marker; doesn't close the stream
+        public void finish() throws IOException {
+            flushGroup();
+            writeVarint(out, 0);
+            out.flush();
+        }
+
+        private void flushGroup() throws IOException {
+            if (rows == 0) {
+                return;
+            }
+            writeVarint(out, rows);
+            ByteArrayOutputStream block = new ByteArrayOutputStream(rows * 4);
+            DataOutputStream blockOut = new DataOutputStream(block);
+            for (int i = 0; i < types.length; i++) {
+                block.reset();
+                encodeColumn(blockOut, types[i], group[i]);
+                writeVarint(out, block.size());
+                block.writeTo(out);
+                Arrays.fill(group[i], 0, rows, null);
+            }
+            rows = 0;
+        }
+
+        private void encodeColumn(DataOutputStream block, Type type, Object[] values) throws IOException {
+            byte[] nulls = null;
+            for (int row = 0; row < rows; row++) {
+                if (values[row] == null) {
+                    if (nulls == null) {
+                        nulls = new byte[(rows + 7) / 8];
+                    }
+                    nulls[row >> 3] |= (byte) (1 << (row & 7));
+                }
+            }
+            block.writeByte(nulls == null ? 0 : 1);
+            if (nulls != null) {
+                block.write(nulls);
+            }
+
+            if (type == Type.INTEGER) {
+                long previous = 0;
+                for (int row = 0; row < rows; row++) {
+                    if (values[row] != null) {
+                        long value = (Long) values[row];
+                        long delta = value - previous;
+                        writeVarint(block, (delta << 1) ^ (delta >> 63));
+                        previous = value;
+                    }
+                }
+                return;
+            }
+
+            Map<String, Integer> dictionary = new HashMap<>();
+            List<String> entries = new ArrayList<>();
+            int[] indexes = new int[rows];
+            int count = 0;
+            for (int row = 0; row < rows; row++) {
+                if (values[row] != null) {
+                    String value = (String) values[row];
+                    Integer index = dictionary.get(value);
+                    if (index == null) {
+                        index = entries.size();
+                        dictionary.put(value, index);
+                        entries.add(value);
+                    }
+                    indexes[count++] = index;
+                }
+            }
+            writeVarint(block, entries.size());
+            for (String entry : entries) {
+                byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+                writeVarint(block, bytes.length);
+                block.write(bytes);
+            }
+            for (int i = 0; i < count; i++) {
+                writeVarint(block, indexes[i]);
+            }
+        }
+    }
+
+    public static final class Reader {
+        private final DataInputStream in;
+        private final String[] names;
+        private final Type[] types;
+        private Object[][] group = new Object[0][];
+        private int groupRows;
+        private int next;
+        private boolean ended;
+
+        public Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(in);
+            if (this.in.readInt() != MAGIC) {
+                throw new IOException("Not a columnar export");
+            }
+            int version = this.in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported columnar format version " + version);
+            }
+            int columns = (int) readVarint(this.in);
+            names = new String[columns];
+            types = new Type[columns];
+            for (int i = 0; i < columns; i++) {
+                byte[] name = new byte[(int) readVarint(this.in)];
+                this.in.readFully(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+                types[i] = Type.values()[this.in.readUnsignedByte()];
+            }
+        }
+
+        public String[] getNames() {
+            return names.clone();
+        }
+
+        public Type[] getTypes() {
+            return types.clone();
+        }
+
+        // The next row, or null at the end: Strings for TEXT columns, Longs for INTEGER
+        public Object[] next() throws IOException {
+            if (next == groupRows) {
+                if (ended || !readGroup()) {
+                    return null;
+                }
+            }
+            Object[] row = new Object[names.length];
+            for (int i = 0; i < names.length; i++) {
+                row[i] = group[i][next];
+            }
+            next++;
+            return row;
+        }
+
+        private boolean readGroup() throws IOException {
+            groupRows = (int) readVarint(in);
+            next = 0;
+            if (groupRows == 0) {
+                ended = true;
+                return false;
+            }
+            group = new Object[names.length][];
+            for (int i = 0; i < names.length; i++) {
+                byte[] block = new byte[(int) readVarint(in)];
+                in.readFully(block);
+                group[i] = decodeColumn(new DataInputStream(new ByteArrayInputStream(block)), types[i]);
+            }
+            return true;
+        }
+
+        private Object[] decodeColumn(DataInputStream block, Type type) throws IOException {
+            boolean[] isNull = new boolean[groupRows];
+            if (block.readUnsignedByte() == 1) {
+                byte[] nulls = new byte[(groupRows + 7) / 8];
+                block.readFully(nulls);
+                for (int row = 0; row < groupRows; row++) {
+                    isNull[row] = (nulls[row >> 3] & (1 << (row & 7))) != 0;
+                }
+            }
+
+            Object[] values = new Object[groupRows];
+            if (type == Type.INTEGER) {
+                long previous = 0;
+                for (int row = 0; row < groupRows; row++) {
+                    if (!isNull[row]) {
+                        long zigzag = readVarint(block);
+                        previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                        values[row] = previous;
+                    }
+                }
+                return values;
+            }
+
+            String[] dictionary = new String[(int) readVarint(block)];
+            for (int i = 0; i < dictionary.length; i++) {
+                byte[] bytes = new byte[(int) readVarint(block)];
+                block.readFully(bytes);
+                dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            for (int row = 0; row < groupRows; row++) {
+                if (!isNull[row]) {
+                    values[row] = dictionary[(int) readVarint(block)];
+                }
+            }
+            return values;
+        }
+    }
+
+    static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated columnar export");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in columnar export");
+    }
+}
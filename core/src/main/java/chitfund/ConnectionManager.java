@@ -0,0 +1,109 @@
+package chitfund;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Connection management for chitfund.db: one writer connection and a fixed set of
+// read-only reader connections. The database runs in WAL mode by default so readers
+// (reports, table views) don't wait for the writer. PRAGMA settings come from
+// system properties; see Config.
+public class ConnectionManager implements AutoCloseable {
+    public static final class Config {
+        String url = "jdbc:sqlite:chitfund.db";
+        int readers = 3;
+        String journalMode = "WAL";
+        String synchronous = "NORMAL";
+        // Negative cache_size is in KiB
+        int cacheSize = -16000;
+        long mmapSize = 256L * 1024 * 1024;
+        int busyTimeoutMillis = 5000;
+        int statementCacheSize = 64;
+
+        public static Config fromSystemProperties() {
+            Config config = new Config();
+            config.url = System.getProperty("chitfund.db.url", config.url);
+            config.readers = Integer.getInteger("chitfund.db.readers", config.readers);
+            config.journalMode = System.getProperty("chitfund.db.journalMode", config.journalMode);
+            config.synchronous = System.getProperty("chitfund.db.synchronous", config.synchronous);
+            config.cacheSize = Integer.getInteger("chitfund.db.cacheSize", config.cacheSize);
+            config.mmapSize = Long.getLong("chitfund.db.mmapSize", config.mmapSize);
+            config.busyTimeoutMillis = Integer.getInteger("chitfund.db.busyTimeoutMillis", config.busyTimeoutMillis);
+            config.statementCacheSize = Integer.getInteger("chitfund.db.statementCacheSize", config.statementCacheSize);
+            return config;
+        }
+    }
+
+    public interface SqlWork<T> {
+        T run(CachedConnection connection) throws SQLException;
+    }
+
+    private final CachedConnection writer;
+    private final List<CachedConnection> readers = new ArrayList<>();
+    private final BlockingQueue<CachedConnection> idleReaders;
+
+    public ConnectionManager(Config config) throws SQLException {
+        // The writer is opened first so the journal mode is in place before any reader
+        Connection writeConnection = DriverManager.getConnection(config.url);
+        try (Statement stmt = writeConnection.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = " + config.journalMode);
+        }
+        configure(writeConnection, config);
+        writer = new CachedConnection(writeConnection, config.statementCacheSize);
+
+        idleReaders = new ArrayBlockingQueue<>(Math.max(1, config.readers));
+        for (int i = 0; i < Math.max(1, config.readers); i++) {
+            Connection readConnection = DriverManager.getConnection(config.url);
+            configure(readConnection, config);
+            try (Statement stmt = readConnection.createStatement()) {
+                stmt.execute("PRAGMA query_only = 1");
+            }
+            CachedConnection reader = new CachedConnection(readConnection, config.statementCacheSize);
+            readers.add(reader);
+            idleReaders.add(reader);
+        }
+    }
+
+    private static void configure(Connection connection, Config config) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + config.busyTimeoutMillis);
+            stmt.execute("PRAGMA synchronous = " + config.synchronous);
+            stmt.execute("PRAGMA cache_size = " + config.cacheSize);
+            stmt.execute("PRAGMA mmap_size = " + config.mmapSize);
+        }
+    }
+
+    // The writer belongs to a single owner (startup, then the persistence queue)
+    public CachedConnection getWriter() {
+        return writer;
+    }
+
+    // Runs work on an idle reader, waiting for one if they are all busy
+    public <T> T read(SqlWork<T> work) throws SQLException {
+        CachedConnection reader;
+        try {
+            reader = idleReaders.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a reader connection", e);
+        }
+        try {
+            return work.run(reader);
+        } finally {
+            idleReaders.add(reader);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (CachedConnection reader : readers) {
+            reader.close();
+        }
+        writer.close();
+    }
+}
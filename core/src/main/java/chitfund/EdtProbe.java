@@ -0,0 +1,51 @@
+package chitfund;
+
+import java.awt.EventQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Measures how long the event dispatch thread keeps the UI from responding: every
+// period a probe is posted to the event queue and the delay until it runs is recorded
+// as edt.latency. Modal dialogs keep pumping events, so time a user spends in a dialog
+// doesn't count; only work that actually holds the EDT does. Delays over the stall
+// threshold are also counted as errors of edt.stall.
+public class EdtProbe implements AutoCloseable {
+    private final Metrics.Operation latency = Metrics.get().operation("edt.latency");
+    private final Metrics.Operation stalls = Metrics.get().operation("edt.stall");
+    private final long stallNanos;
+    private final ScheduledExecutorService timer;
+    // Only one probe in flight, so a stalled EDT doesn't pile them up
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    public EdtProbe(long periodMillis, long stallMillis) {
+        this.stallNanos = TimeUnit.MILLISECONDS.toNanos(stallMillis);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "chitfund-edt-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::post, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void post() {
+        if (!pending.compareAndSet(false, true)) {
+            return;
+        }
+        long posted = Metrics.start();
+        EventQueue.invokeLater(() -> {
+            pending.set(false);
+            long delay = System.nanoTime() - posted;
+            latency.recordNanos(delay, false);
+            if (delay >= stallNanos) {
+                stalls.recordError(posted);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
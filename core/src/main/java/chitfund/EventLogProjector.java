@@ -0,0 +1,126 @@
+package chitfund;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+// Applies the bid event log to the SQLite tables, which then serve reports, table
+// views and startup loading. The position reached is stored in EventLogProjection in
+// the same transaction as the rows, so every event is applied exactly once even
+// across crashes. In the UI it runs as a PersistenceQueue task, keeping a single
+// writer on the database.
+public class EventLogProjector implements PersistenceQueue.Task {
+    // Events read from the log per JDBC batch
+    static final int CHUNK_SIZE = 10_000;
+
+    static final String INSERT_BID =
+            "INSERT INTO Bid (chitFundId, participantId, bidAmountPaise, auctionMonth) VALUES (?, ?, ?, ?)";
+    static final String UPDATE_POSITION = "UPDATE EventLogProjection SET sequence = ? WHERE id = 1";
+
+    private final BidEventLog log;
+    private final Metrics.Operation metrics = Metrics.get().operation("eventlog.project");
+
+    public EventLogProjector(BidEventLog log) {
+        this.log = log;
+    }
+
+    @Override
+    public void run(CachedConnection connection) throws SQLException {
+        long start = Metrics.start();
+        try {
+            project(connection);
+            metrics.record(start);
+        } catch (SQLException e) {
+            metrics.recordError(start);
+            throw e;
+        }
+    }
+
+    // Applies everything appended since the stored position, inside the caller's
+    // transaction. Returns the number of events applied.
+    public int project(CachedConnection connection) throws SQLException {
+        long position = readPosition(connection.getConnection());
+        int applied = 0;
+        List<BidEventLog.Event> events;
+        while (!(events = log.read(position, CHUNK_SIZE)).isEmpty()) {
+            PreparedStatement bids = connection.prepare(INSERT_BID);
+            for (BidEventLog.Event event : events) {
+                switch (event.type) {
+                    case BID:
+                        bids.setString(1, event.chitFundId);
+                        bids.setString(2, event.participantId);
+                        bids.setLong(3, event.amountPaise);
+                        bids.setInt(4, event.month);
+                        bids.addBatch();
+                        break;
+                    case SETTLEMENT:
+                        // Bids placed before the settlement go in first
+                        bids.executeBatch();
+                        applySettlement(connection, event);
+                        break;
+                    default:
+                        // Summaries only replace bids that were projected before compaction
+                        break;
+                }
+            }
+            bids.executeBatch();
+            applied += events.size();
+            position = events.get(events.size() - 1).sequence;
+        }
+        if (applied > 0) {
+            PreparedStatement update = connection.prepare(UPDATE_POSITION);
+            update.setLong(1, position);
+            update.executeUpdate();
+        }
+        return applied;
+    }
+
+    // Catches up on a connection of its own, for the command-line tools
+    public int projectNow(CachedConnection connection) throws SQLException {
+        Connection conn = connection.getConnection();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            int applied = project(connection);
+            conn.commit();
+            return applied;
+        } catch (SQLException e) {
+            connection.clearBatches();
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    public static long readPosition(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT sequence FROM EventLogProjection WHERE id = 1")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static void applySettlement(CachedConnection connection, BidEventLog.Event event) throws SQLException {
+        PreparedStatement settlement = connection.prepare(AuctionEngine.INSERT_SETTLEMENT);
+        settlement.setString(1, event.chitFundId);
+        settlement.setInt(2, event.month);
+        settlement.setString(3, event.participantId);
+        settlement.setLong(4, event.amountPaise);
+        settlement.setLong(5, event.dividendPerMemberPaise);
+        settlement.setString(6, event.settledAt.toString());
+        settlement.executeUpdate();
+
+        PreparedStatement winner = connection.prepare(AuctionEngine.UPDATE_AMOUNT_RECEIVED);
+        winner.setLong(1, event.balancePaise);
+        winner.setString(2, event.participantId);
+        winner.executeUpdate();
+
+        PreparedStatement fund = connection.prepare(AuctionEngine.UPDATE_CURRENT_MONTH);
+        fund.setInt(1, event.month + 1);
+        fund.setString(2, event.chitFundId);
+        fund.executeUpdate();
+    }
+}
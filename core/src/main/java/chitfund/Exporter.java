@@ -0,0 +1,401 @@
+package chitfund;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+// Streams tables, or joins of them, to CSV, JSON Lines or the columnar format, one row
+// at a time: a forward-only cursor with a bounded fetch size on one side, a buffered
+// channel (gzipped if asked) on the other, so memory stays the same whatever the row
+// count. Every dataset of one export is read in a single transaction and so sees the
+// same state of the database. Files are written under a temporary name and moved into
+// place once complete.
+//
+// Text formats give amounts in rupees under the importer's column names, so funds,
+// members, bids and payments exports can be imported again; the columnar format keeps
+// paise. Archived funds are exported alongside live ones, through the All* views.
+public class Exporter {
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    public static final int DEFAULT_BUFFER_BYTES = 256 * 1024;
+    static final int PROGRESS_INTERVAL = 100_000;
+
+    public enum Format {
+        CSV(".csv"), JSONL(".jsonl"), COLUMNAR(".cfc");
+
+        final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    enum Kind { TEXT, INTEGER, MONEY }
+
+    public enum Dataset {
+        FUNDS("funds",
+                "SELECT id, totalAmountPaise, numberOfMonths, currentMonth FROM AllChitFunds",
+                column("id", Kind.TEXT), column("totalAmount", Kind.MONEY),
+                column("numberOfMonths", Kind.INTEGER), column("currentMonth", Kind.INTEGER)),
+        PARTICIPANTS("participants",
+                "SELECT id, name, amountReceivedPaise FROM Participant",
+                column("id", Kind.TEXT), column("name", Kind.TEXT), column("amountReceived", Kind.MONEY)),
+        // One row per membership, in the importer's participants layout
+        MEMBERS("members",
+                "SELECT p.id, p.name, m.chitFundId FROM AllMemberships m " +
+                "JOIN Participant p ON p.id = m.participantId",
+                column("id", Kind.TEXT), column("name", Kind.TEXT), column("chitFundId", Kind.TEXT)),
+        BIDS("bids",
+                "SELECT id, chitFundId, participantId, bidAmountPaise, auctionMonth, importKey FROM AllBids",
+                column("id", Kind.INTEGER), column("chitFundId", Kind.TEXT), column("participantId", Kind.TEXT),
+                column("bidAmount", Kind.MONEY), column("auctionMonth", Kind.INTEGER), column("importKey", Kind.TEXT)),
+        // Bid history with each bid's fund, bidder name and, once the month is settled,
+        // its winner
+        BID_HISTORY("bid-history",
+                "SELECT b.id, b.chitFundId, f.totalAmountPaise, b.auctionMonth, b.participantId, p.name, " +
+                "b.bidAmountPaise, s.participantId, s.amountPaise FROM AllBids b " +
+                "LEFT JOIN AllChitFunds f ON f.id = b.chitFundId " +
+                "LEFT JOIN Participant p ON p.id = b.participantId " +
+                "LEFT JOIN AllSettlements s ON s.chitFundId = b.chitFundId AND s.month = b.auctionMonth",
+                column("id", Kind.INTEGER), column("chitFundId", Kind.TEXT), column("fundAmount", Kind.MONEY),
+                column("auctionMonth", Kind.INTEGER), column("participantId", Kind.TEXT),
+                column("participantName", Kind.TEXT), column("bidAmount", Kind.MONEY),
+                column("winnerId", Kind.TEXT), column("payout", Kind.MONEY)),
+        // In the importer's payments layout
+        PAYMENTS("payments",
+                "SELECT chitFundId, participantId, amountPaise, paidAt, importKey FROM AllPayments",
+                column("chitFundId", Kind.TEXT), column("participantId", Kind.TEXT), column("amount", Kind.MONEY),
+                column("paidAt", Kind.TEXT), column("importKey", Kind.TEXT)),
+        INSTALLMENTS("installments",
+                "SELECT chitFundId, month, installmentPaise, commissionPaise, netDividendPerMemberPaise, duePaise " +
+                "FROM AllInstallments",
+                column("chitFundId", Kind.TEXT), column("month", Kind.INTEGER), column("installment", Kind.MONEY),
+                column("commission", Kind.MONEY), column("netDividendPerMember", Kind.MONEY), column("due", Kind.MONEY)),
+        // The dues ledger as of the last month-end run
+        DUES("dues",
+                "SELECT chitFundId, participantId, chargedPaise, paidPaise, duePaise, monthsBehind FROM AllMemberDues",
+                column("chitFundId", Kind.TEXT), column("participantId", Kind.TEXT), column("charged", Kind.MONEY),
+                column("paid", Kind.MONEY), column("due", Kind.MONEY), column("monthsBehind", Kind.INTEGER));
+
+        final String fileName;
+        final String sql;
+        final Column[] columns;
+
+        Dataset(String fileName, String sql, Column... columns) {
+            this.fileName = fileName;
+            this.sql = sql;
+            this.columns = columns;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        // Accepts the file name or the constant's name, in any case
+        public static Dataset parse(String name) {
+            for (Dataset dataset : values()) {
+                if (dataset.fileName.equalsIgnoreCase(name) || dataset.name().equalsIgnoreCase(name)) {
+                    return dataset;
+                }
+            }
+            throw new IllegalArgumentException("Unknown dataset '" + name + "'");
+        }
+    }
+
+    static final class Column {
+        final String name;
+        final Kind kind;
+
+        Column(String name, Kind kind) {
+            this.name = name;
+            this.kind = kind;
+        }
+    }
+
+    private static Column column(String name, Kind kind) {
+        return new Column(name, kind);
+    }
+
+    private final Connection connection;
+    private final int fetchSize;
+    private final int bufferBytes;
+
+    public Exporter(Connection connection, int fetchSize, int bufferBytes) {
+        this.connection = connection;
+        this.fetchSize = fetchSize;
+        this.bufferBytes = bufferBytes;
+    }
+
+    // Writes each dataset to dir as <dataset><extension>[.gz]. Once cancelled returns
+    // true it stops at the next progress check and removes the file it was writing.
+    public List<ExportReport> export(List<Dataset> datasets, Format format, boolean gzip, Path dir,
+                                     Consumer<ExportReport> progress, BooleanSupplier cancelled)
+            throws IOException, SQLException {
+        Files.createDirectories(dir);
+        List<ExportReport> reports = new ArrayList<>();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            for (Dataset dataset : datasets) {
+                if (cancelled.getAsBoolean()) {
+                    break;
+                }
+                reports.add(export(dataset, format, gzip, dir, progress, cancelled));
+            }
+        } finally {
+            // Only read; ends the read transaction
+            connection.rollback();
+            connection.setAutoCommit(autoCommit);
+        }
+        return reports;
+    }
+
+    private ExportReport export(Dataset dataset, Format format, boolean gzip, Path dir,
+                                Consumer<ExportReport> progress, BooleanSupplier cancelled)
+            throws IOException, SQLException {
+        Path file = dir.resolve(dataset.fileName + format.extension + (gzip ? ".gz" : ""));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        ExportReport report = new ExportReport(dataset, file);
+        long start = System.nanoTime();
+        boolean complete = false;
+        try (Statement stmt = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(fetchSize);
+            try (ResultSet rs = stmt.executeQuery(dataset.sql);
+                 OutputStream out = open(temp, gzip)) {
+                RowSink sink = format == Format.COLUMNAR ? new ColumnarSink(out, dataset.columns)
+                        : new TextSink(out, dataset.columns, format);
+                Object[] row = new Object[dataset.columns.length];
+                while (rs.next()) {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = dataset.columns[i].kind == Kind.TEXT ? rs.getString(i + 1) : nullableLong(rs, i + 1);
+                    }
+                    sink.write(row);
+                    if (++report.rows % PROGRESS_INTERVAL == 0) {
+                        if (cancelled.getAsBoolean()) {
+                            report.cancelled = true;
+                            return report;
+                        }
+                        if (progress != null) {
+                            progress.accept(report);
+                        }
+                    }
+                }
+                sink.finish();
+                complete = true;
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            report.bytes = Files.size(file);
+            report.done = true;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(temp);
+            }
+            report.millis = (System.nanoTime() - start) / 1_000_000;
+        }
+        return report;
+    }
+
+    private OutputStream open(Path file, boolean gzip) throws IOException {
+        OutputStream out = Channels.newOutputStream(FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        // Compression works on the channel side of the buffer, in large blocks
+        return new BufferedOutputStream(gzip ? new GZIPOutputStream(out, bufferBytes) : out, bufferBytes);
+    }
+
+    private static Long nullableLong(ResultSet rs, int column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private interface RowSink {
+        void write(Object[] row) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static final class TextSink implements RowSink {
+        private final Writer writer;
+        private final Column[] columns;
+        private final boolean csv;
+        private final StringBuilder line = new StringBuilder(256);
+
+        TextSink(OutputStream out, Column[] columns, Format format) throws IOException {
+            // The stream under it is already buffered; this only batches the encoding
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+            this.columns = columns;
+            this.csv = format == Format.CSV;
+            if (csv) {
+                for (int i = 0; i < columns.length; i++) {
+                    line.append(i == 0 ? "" : ",").append(columns[i].name);
+                }
+                writer.append(line).append('\n');
+            }
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            line.setLength(0);
+            if (!csv) {
+                line.append('{');
+            }
+            for (int i = 0; i < columns.length; i++) {
+                if (csv) {
+                    if (i > 0) {
+                        line.append(',');
+                    }
+                    if (row[i] != null) {
+                        appendValue(columns[i], row[i], true);
+                    }
+                } else if (row[i] != null) {
+                    if (line.length() > 1) {
+                        line.append(',');
+                    }
+                    line.append('"').append(columns[i].name).append("\":");
+                    appendValue(columns[i], row[i], false);
+                }
+            }
+            if (!csv) {
+                line.append('}');
+            }
+            writer.append(line).append('\n');
+        }
+
+        private void appendValue(Column column, Object value, boolean csv) {
+            switch (column.kind) {
+                case MONEY:
+                    // A string in JSON, so no reader turns it into a binary fraction
+                    if (!csv) {
+                        line.append('"');
+                    }
+                    Money.append(line, (Long) value);
+                    if (!csv) {
+                        line.append('"');
+                    }
+                    break;
+                case INTEGER:
+                    line.append((long) (Long) value);
+                    break;
+                default:
+                    if (csv) {
+                        appendCsv((String) value);
+                    } else {
+                        line.append(BidServer.quote((String) value));
+                    }
+                    break;
+            }
+        }
+
+        // RFC 4180: quoted when it holds a comma, quote or line break, quotes doubled
+        private void appendCsv(String value) {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                line.append(value);
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                line.append(c);
+                if (c == '"') {
+                    line.append('"');
+                }
+            }
+            line.append('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static final class ColumnarSink implements RowSink {
+        private final ColumnarFile.Writer writer;
+
+        ColumnarSink(OutputStream out, Column[] columns) throws IOException {
+            String[] names = new String[columns.length];
+            ColumnarFile.Type[] types = new ColumnarFile.Type[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                boolean money = columns[i].kind == Kind.MONEY;
+                names[i] = money ? columns[i].name + "Paise" : columns[i].name;
+                types[i] = columns[i].kind == Kind.TEXT ? ColumnarFile.Type.TEXT : ColumnarFile.Type.INTEGER;
+            }
+            this.writer = new ColumnarFile.Writer(out, names, types);
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            writer.write(row);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.finish();
+        }
+    }
+
+    public static class ExportReport {
+        private final Dataset dataset;
+        private final Path file;
+        long rows;
+        long bytes;
+        long millis;
+        boolean done;
+        boolean cancelled;
+
+        ExportReport(Dataset dataset, Path file) {
+            this.dataset = dataset;
+            this.file = file;
+        }
+
+        public Dataset getDataset() {
+            return dataset;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public String toString() {
+            if (cancelled) {
+                return "Export of " + dataset.fileName + " cancelled after " + rows + " rows";
+            }
+            if (!done) {
+                return dataset.fileName + ": " + rows + " rows so far";
+            }
+            return "Exported " + rows + " " + dataset.fileName + " rows to " + file + " (" + bytes / 1024 + " KiB) in " +
+                    millis + " ms (" + (millis > 0 ? rows * 1000 / millis : rows) + " rows/s)";
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package chitfund;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+
+// Cold storage for chit funds that have run all their auction months. Archiving
+// moves such funds, with their memberships, bids, settlements, payments and dues,
+// from the live tables into *Archive tables in the same database, in one
+// transaction, so loading the model, the reports and the live-table indexes only
+// cover active funds.
+// Participants stay in Participant: they may belong to other funds, and their
+// amount received includes archived payouts.
+//
+// The All* views put live and archived rows back together for historical queries
+// (exports and verification read them). Each run is recorded in ArchiveRun, whose
+// latest id is one of the snapshot marks, since rows leaving the live tables can't
+// be told apart from rows that were never there.
+public class FundArchive {
+    // Funds whose every month has been auctioned and settled
+    static final String COMPLETED = "SELECT id FROM ChitFund WHERE currentMonth > numberOfMonths";
+
+    private static final String FUND_COLUMNS = "id, totalAmountPaise, numberOfMonths, currentMonth";
+    private static final String BID_COLUMNS = "id, chitFundId, participantId, bidAmountPaise, auctionMonth, importKey";
+    private static final String SETTLEMENT_COLUMNS =
+            "chitFundId, month, participantId, amountPaise, dividendPerMemberPaise, settledAt";
+
+    static void createTables(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS ArchiveRun (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "archivedAt TEXT NOT NULL, " +
+                "funds INTEGER NOT NULL DEFAULT 0, " +
+                "bids INTEGER NOT NULL DEFAULT 0)");
+        // completedAt is when the last month was settled, NULL for funds settled before
+        // settlements were recorded
+        stmt.execute("CREATE TABLE IF NOT EXISTS ChitFundArchive (" +
+                "id TEXT PRIMARY KEY, " +
+                "totalAmountPaise INTEGER NOT NULL, " +
+                "numberOfMonths INTEGER, " +
+                "currentMonth INTEGER NOT NULL, " +
+                "completedAt TEXT, " +
+                "archiveRunId INTEGER NOT NULL, " +
+                "FOREIGN KEY(archiveRunId) REFERENCES ArchiveRun(id))");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_ChitFundArchive_completedAt ON ChitFundArchive(completedAt)");
+        stmt.execute("CREATE TABLE IF NOT EXISTS ChitFundParticipantArchive (" +
+                "chitFundId TEXT NOT NULL, " +
+                "participantId TEXT NOT NULL, " +
+                "PRIMARY KEY (chitFundId, participantId)) WITHOUT ROWID");
+        // Keeps the ids bids had in Bid, which AUTOINCREMENT never hands out again
+        stmt.execute("CREATE TABLE IF NOT EXISTS BidArchive (" +
+                "id INTEGER PRIMARY KEY, " +
+                "chitFundId TEXT NOT NULL, " +
+                "participantId TEXT, " +
+                "bidAmountPaise INTEGER NOT NULL, " +
+                "auctionMonth INTEGER NOT NULL, " +
+                "importKey TEXT)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_BidArchive_chitFundId ON BidArchive(chitFundId)");
+        stmt.execute("CREATE TABLE IF NOT EXISTS SettlementArchive (" +
+                "chitFundId TEXT NOT NULL, " +
+                "month INTEGER NOT NULL, " +
+                "participantId TEXT NOT NULL, " +
+                "amountPaise INTEGER NOT NULL, " +
+                "dividendPerMemberPaise INTEGER NOT NULL, " +
+                "settledAt TEXT, " +
+                "PRIMARY KEY (chitFundId, month))");
+
+        // An archived fund's ID isn't handed out again, so the views stay keyed by it
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS ChitFundNotArchived BEFORE INSERT ON ChitFund " +
+                "WHEN EXISTS (SELECT 1 FROM ChitFundArchive WHERE id = NEW.id) BEGIN " +
+                "SELECT RAISE(ABORT, 'chit fund ID belongs to an archived fund'); END");
+
+        stmt.execute("CREATE VIEW IF NOT EXISTS AllChitFunds AS " +
+                "SELECT " + FUND_COLUMNS + ", 0 AS archived FROM ChitFund UNION ALL " +
+                "SELECT " + FUND_COLUMNS + ", 1 FROM ChitFundArchive");
+        stmt.execute("CREATE VIEW IF NOT EXISTS AllMemberships AS " +
+                "SELECT chitFundId, participantId FROM ChitFundParticipant UNION ALL " +
+                "SELECT chitFundId, participantId FROM ChitFundParticipantArchive");
+        stmt.execute("CREATE VIEW IF NOT EXISTS AllBids AS " +
+                "SELECT " + BID_COLUMNS + " FROM Bid UNION ALL " +
+                "SELECT " + BID_COLUMNS + " FROM BidArchive");
+        stmt.execute("CREATE VIEW IF NOT EXISTS AllSettlements AS " +
+                "SELECT " + SETTLEMENT_COLUMNS + " FROM Settlement UNION ALL " +
+                "SELECT " + SETTLEMENT_COLUMNS + " FROM SettlementArchive");
+    }
+
+    // The latest ArchiveRun id, 0 if nothing has been archived
+    static long lastRun(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM ArchiveRun")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // Moves every completed fund into the archive tables in a single transaction.
+    // Nothing is recorded when no fund has completed.
+    public static ArchiveReport archiveCompleted(Connection connection) throws SQLException {
+        long start = System.nanoTime();
+        Metrics.Operation metrics = Metrics.get().operation("archive.run");
+        ArchiveReport report = new ArchiveReport();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM (" + COMPLETED + ")")) {
+                rs.next();
+                report.funds = rs.getInt(1);
+            }
+            if (report.funds > 0) {
+                try (PreparedStatement run = connection.prepareStatement(
+                        "INSERT INTO ArchiveRun (archivedAt) VALUES (?)")) {
+                    run.setString(1, Instant.now().toString());
+                    run.executeUpdate();
+                }
+                try (ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+                    rs.next();
+                    report.runId = rs.getLong(1);
+                }
+
+                stmt.executeUpdate("INSERT INTO ChitFundArchive (" + FUND_COLUMNS + ", completedAt, archiveRunId) " +
+                        "SELECT " + FUND_COLUMNS + ", " +
+                        "(SELECT MAX(settledAt) FROM Settlement s WHERE s.chitFundId = f.id), " + report.runId +
+                        " FROM ChitFund f WHERE id IN (" + COMPLETED + ")");
+                report.memberships = stmt.executeUpdate(
+                        "INSERT INTO ChitFundParticipantArchive (chitFundId, participantId) " +
+                        "SELECT chitFundId, participantId FROM ChitFundParticipant " +
+                        "WHERE chitFundId IN (" + COMPLETED + ")");
+                report.bids = stmt.executeUpdate("INSERT INTO BidArchive (" + BID_COLUMNS + ") " +
+                        "SELECT " + BID_COLUMNS + " FROM Bid WHERE chitFundId IN (" + COMPLETED + ")");
+                report.settlements = stmt.executeUpdate("INSERT INTO SettlementArchive (" + SETTLEMENT_COLUMNS + ") " +
+                        "SELECT " + SETTLEMENT_COLUMNS + " FROM Settlement WHERE chitFundId IN (" + COMPLETED + ")");
+                moveRows(stmt, "Payment", InstallmentEngine.PAYMENT_COLUMNS);
+                moveRows(stmt, "Installment", InstallmentEngine.INSTALLMENT_COLUMNS);
+                // The ledger as of the last month-end run, kept for collecting what is still owed
+                moveRows(stmt, "MemberDues", InstallmentEngine.DUES_COLUMNS);
+
+                // Dependent rows first; ChitFund goes last since it defines the set
+                for (String table : new String[] {"ChitFundParticipant", "Bid", "Settlement", "FundStats",
+                        "Payment", "Installment", "MemberDues"}) {
+                    stmt.executeUpdate("DELETE FROM " + table + " WHERE chitFundId IN (" + COMPLETED + ")");
+                }
+                stmt.executeUpdate("DELETE FROM ChitFund WHERE id IN (" + COMPLETED + ")");
+                stmt.executeUpdate("UPDATE ArchiveRun SET funds = " + report.funds + ", bids = " + report.bids +
+                        " WHERE id = " + report.runId);
+            }
+            connection.commit();
+            metrics.record(start);
+        } catch (SQLException e) {
+            connection.rollback();
+            metrics.recordError(start);
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        report.archiveMillis = (System.nanoTime() - start) / 1_000_000;
+        return report;
+    }
+
+    private static void moveRows(Statement stmt, String table, String columns) throws SQLException {
+        stmt.executeUpdate("INSERT INTO " + table + "Archive (" + columns + ") SELECT " + columns + " FROM " + table +
+                " WHERE chitFundId IN (" + COMPLETED + ")");
+    }
+
+    // Rewrites the database file without the space the archived rows left behind in
+    // the live tables and indexes, then refreshes the planner's statistics. Holds the
+    // write lock throughout and needs free disk space for a copy of the database.
+    public static void compact(Connection connection, ArchiveReport report) throws SQLException {
+        long start = System.nanoTime();
+        try (Statement stmt = connection.createStatement()) {
+            report.bytesBefore = databaseBytes(stmt);
+            stmt.execute("VACUUM");
+            stmt.execute("PRAGMA optimize");
+            // In WAL mode the rewritten pages reach the file at the checkpoint
+            stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+            report.bytesAfter = databaseBytes(stmt);
+        }
+        report.compactMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static long databaseBytes(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT page_count * page_size FROM pragma_page_count(), pragma_page_size()")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    public static class ArchiveReport {
+        long runId;
+        int funds;
+        int memberships;
+        int bids;
+        int settlements;
+        long archiveMillis;
+        // Left at -1 when the database wasn't compacted
+        long bytesBefore = -1;
+        long bytesAfter = -1;
+        long compactMillis;
+
+        public int getFunds() {
+            return funds;
+        }
+
+        @Override
+        public String toString() {
+            if (funds == 0) {
+                return "No completed chit funds to archive";
+            }
+            String line = "Archived " + funds + " chit funds with " + memberships + " memberships, " + bids +
+                    " bids and " + settlements + " settlements (run " + runId + ") in " + archiveMillis + " ms";
+            if (bytesBefore >= 0) {
+                line += "; compacted " + bytesBefore / 1024 + " KiB to " + bytesAfter / 1024 + " KiB in " +
+                        compactMillis + " ms";
+            }
+            return line;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package chitfund;
+
+// Summary of one chit fund: the open month's bids plus running totals over every
+// month. Built from counters the fund keeps up to date as bids and settlements are
+// applied, so it costs the same however many bids the fund has seen. The totals
+// match the fund's FundStats row once pending writes are committed.
+public class FundStats {
+    private final String chitFundId;
+    private final int currentMonth;
+    private final int numberOfMonths;
+    private final int members;
+    private final int openBids;
+    private final long openHighestPaise;
+    private final long openTotalPaise;
+    private final long bidCount;
+    private final long bidTotalPaise;
+    private final long highestBidPaise;
+    private final int settledMonths;
+    private final long distributedPaise;
+    private final long dividendPaise;
+
+    FundStats(String chitFundId, int currentMonth, int numberOfMonths, int members,
+              int openBids, long openHighestPaise, long openTotalPaise,
+              long bidCount, long bidTotalPaise, long highestBidPaise,
+              int settledMonths, long distributedPaise, long dividendPaise) {
+        this.chitFundId = chitFundId;
+        this.currentMonth = currentMonth;
+        this.numberOfMonths = numberOfMonths;
+        this.members = members;
+        this.openBids = openBids;
+        this.openHighestPaise = openHighestPaise;
+        this.openTotalPaise = openTotalPaise;
+        this.bidCount = bidCount;
+        this.bidTotalPaise = bidTotalPaise;
+        this.highestBidPaise = highestBidPaise;
+        this.settledMonths = settledMonths;
+        this.distributedPaise = distributedPaise;
+        this.dividendPaise = dividendPaise;
+    }
+
+    public String getChitFundId() {
+        return chitFundId;
+    }
+
+    public int getCurrentMonth() {
+        return currentMonth;
+    }
+
+    public int getNumberOfMonths() {
+        return numberOfMonths;
+    }
+
+    public int getMembers() {
+        return members;
+    }
+
+    // Bids in the open auction month
+    public int getOpenBids() {
+        return openBids;
+    }
+
+    public long getOpenHighestPaise() {
+        return openHighestPaise;
+    }
+
+    public long getOpenAveragePaise() {
+        return openBids == 0 ? 0 : openTotalPaise / openBids;
+    }
+
+    // Bids over the fund's whole life, settled months included
+    public long getBidCount() {
+        return bidCount;
+    }
+
+    public long getBidTotalPaise() {
+        return bidTotalPaise;
+    }
+
+    public long getHighestBidPaise() {
+        return highestBidPaise;
+    }
+
+    // Rounded down to whole paise
+    public long getAverageBidPaise() {
+        return bidCount == 0 ? 0 : bidTotalPaise / bidCount;
+    }
+
+    public int getSettledMonths() {
+        return settledMonths;
+    }
+
+    // Paid to auction winners so far
+    public long getDistributedPaise() {
+        return distributedPaise;
+    }
+
+    // Dividend paid to each member so far
+    public long getDividendPaise() {
+        return dividendPaise;
+    }
+
+    @Override
+    public String toString() {
+        return "Chit fund " + chitFundId + " month " + currentMonth + " of " + numberOfMonths + ", " +
+                members + " members: " + openBids + " bids this month (highest " + Money.format(openHighestPaise) +
+                "), " + bidCount + " bids in all (average " + Money.format(getAverageBidPaise()) +
+                ", highest " + Money.format(highestBidPaise) + "), " + settledMonths + " months settled, " +
+                Money.format(distributedPaise) + " distributed, " + Money.format(dividendPaise) +
+                " dividend per member";
+    }
+}
@@ -0,0 +1,221 @@
+package chitfund;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// The FundStats table: one row of running totals per chit fund, kept current by
+// triggers on ChitFund, Bid and Settlement, so every writer (UI queue, event log
+// projection, importer, settle) updates it in the same transaction as the rows it
+// inserts. This class loads it into the model, sums it for the dashboard and checks
+// it against totals recomputed from the raw rows.
+public class FundStatsTable {
+    static final int MAX_REPORTED_DRIFT = 100;
+
+    static final String COLUMNS =
+            "chitFundId, bidCount, bidTotalPaise, highestBidPaise, settledMonths, distributedPaise, dividendPaise";
+
+    // The totals as they should be, from Bid and Settlement, in COLUMNS order
+    static final String RECOMPUTE =
+            "SELECT f.id, COALESCE(b.n, 0), COALESCE(b.total, 0), COALESCE(b.highest, 0), " +
+            "COALESCE(s.n, 0), COALESCE(s.paid, 0), COALESCE(s.dividend, 0) " +
+            "FROM ChitFund f " +
+            "LEFT JOIN (SELECT chitFundId, COUNT(*) AS n, SUM(bidAmountPaise) AS total, " +
+            "MAX(bidAmountPaise) AS highest FROM Bid GROUP BY chitFundId) b ON b.chitFundId = f.id " +
+            "LEFT JOIN (SELECT chitFundId, COUNT(*) AS n, SUM(amountPaise) AS paid, " +
+            "SUM(dividendPerMemberPaise) AS dividend FROM Settlement GROUP BY chitFundId) s ON s.chitFundId = f.id";
+
+    static void createTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS FundStats (" +
+                "chitFundId TEXT PRIMARY KEY, " +
+                "bidCount INTEGER NOT NULL DEFAULT 0, " +
+                "bidTotalPaise INTEGER NOT NULL DEFAULT 0, " +
+                "highestBidPaise INTEGER NOT NULL DEFAULT 0, " +
+                "settledMonths INTEGER NOT NULL DEFAULT 0, " +
+                "distributedPaise INTEGER NOT NULL DEFAULT 0, " +
+                "dividendPaise INTEGER NOT NULL DEFAULT 0, " +
+                "FOREIGN KEY(chitFundId) REFERENCES ChitFund(id))");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS FundStatsOnFund AFTER INSERT ON ChitFund BEGIN " +
+                "INSERT OR IGNORE INTO FundStats (chitFundId) VALUES (NEW.id); END");
+        // Rows for unknown funds match no FundStats row and are left out, as in RECOMPUTE
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS FundStatsOnBid AFTER INSERT ON Bid BEGIN " +
+                "UPDATE FundStats SET bidCount = bidCount + 1, " +
+                "bidTotalPaise = bidTotalPaise + NEW.bidAmountPaise, " +
+                "highestBidPaise = MAX(highestBidPaise, NEW.bidAmountPaise) " +
+                "WHERE chitFundId = NEW.chitFundId; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS FundStatsOnSettlement AFTER INSERT ON Settlement BEGIN " +
+                "UPDATE FundStats SET settledMonths = settledMonths + 1, " +
+                "distributedPaise = distributedPaise + NEW.amountPaise, " +
+                "dividendPaise = dividendPaise + NEW.dividendPerMemberPaise " +
+                "WHERE chitFundId = NEW.chitFundId; END");
+    }
+
+    // Replaces every row with totals recomputed from the raw rows
+    public static int rebuild(Statement stmt) throws SQLException {
+        stmt.execute("DELETE FROM FundStats");
+        return stmt.executeUpdate("INSERT INTO FundStats (" + COLUMNS + ") " + RECOMPUTE);
+    }
+
+    // Sets each loaded fund's running totals from its row
+    public static int loadInto(Connection connection, ChitFundManagementSystem system) throws SQLException {
+        int loaded = 0;
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT " + COLUMNS + " FROM FundStats")) {
+            while (rs.next()) {
+                ChitFundSystem fund = system.findFund(rs.getString(1));
+                if (fund != null) {
+                    fund.restoreTotals(rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getInt(5),
+                            rs.getLong(6), rs.getLong(7));
+                    loaded++;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    public static Totals totals(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*), COALESCE(SUM(bidCount), 0), " +
+                     "COALESCE(SUM(bidTotalPaise), 0), COALESCE(MAX(highestBidPaise), 0), " +
+                     "COALESCE(SUM(settledMonths), 0), COALESCE(SUM(distributedPaise), 0) FROM FundStats")) {
+            rs.next();
+            return new Totals(rs.getInt(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getLong(6));
+        }
+    }
+
+    // Compares FundStats, and each participant's amount received, with totals
+    // recomputed from Bid and Settlement; amounts received include archived settlements.
+    // Reads every row, so it's for occasional checks.
+    public static VerifyReport verify(Connection connection) throws SQLException {
+        VerifyReport report = new VerifyReport();
+        long start = System.nanoTime();
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT r.*, s." + COLUMNS.replace(", ", ", s.") +
+                    " FROM (" + RECOMPUTE + ") r LEFT JOIN FundStats s ON s.chitFundId = r.id")) {
+                String[] names = COLUMNS.split(", ");
+                while (rs.next()) {
+                    report.funds++;
+                    String chitFundId = rs.getString(1);
+                    if (rs.getString(8) == null) {
+                        report.drift("Chit fund " + chitFundId + " has no FundStats row");
+                        continue;
+                    }
+                    for (int i = 1; i < names.length; i++) {
+                        long expected = rs.getLong(i + 1);
+                        long stored = rs.getLong(i + 8);
+                        if (expected != stored) {
+                            report.drift("Chit fund " + chitFundId + " " + names[i] + " is " + stored +
+                                    ", recomputed " + expected);
+                        }
+                    }
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT chitFundId FROM FundStats WHERE chitFundId NOT IN (SELECT id FROM ChitFund)")) {
+                while (rs.next()) {
+                    report.drift("FundStats row for unknown chit fund " + rs.getString(1));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT p.id, p.amountReceivedPaise, COALESCE(s.paid, 0) FROM Participant p " +
+                    "LEFT JOIN (SELECT participantId, SUM(amountPaise) AS paid FROM AllSettlements " +
+                    "GROUP BY participantId) s ON s.participantId = p.id")) {
+                while (rs.next()) {
+                    report.participants++;
+                    if (rs.getLong(2) != rs.getLong(3)) {
+                        report.drift("Participant " + rs.getString(1) + " amountReceivedPaise is " + rs.getLong(2) +
+                                ", settlements add up to " + rs.getLong(3));
+                    }
+                }
+            }
+        }
+        report.millis = (System.nanoTime() - start) / 1_000_000;
+        return report;
+    }
+
+    public static final class Totals {
+        private final int funds;
+        private final long bids;
+        private final long bidTotalPaise;
+        private final long highestBidPaise;
+        private final long settledMonths;
+        private final long distributedPaise;
+
+        Totals(int funds, long bids, long bidTotalPaise, long highestBidPaise, long settledMonths,
+               long distributedPaise) {
+            this.funds = funds;
+            this.bids = bids;
+            this.bidTotalPaise = bidTotalPaise;
+            this.highestBidPaise = highestBidPaise;
+            this.settledMonths = settledMonths;
+            this.distributedPaise = distributedPaise;
+        }
+
+        public int getFunds() {
+            return funds;
+        }
+
+        public long getBids() {
+            return bids;
+        }
+
+        public long getAverageBidPaise() {
+            return bids == 0 ? 0 : bidTotalPaise / bids;
+        }
+
+        public long getHighestBidPaise() {
+            return highestBidPaise;
+        }
+
+        public long getSettledMonths() {
+            return settledMonths;
+        }
+
+        public long getDistributedPaise() {
+            return distributedPaise;
+        }
+
+        @Override
+        public String toString() {
+            return funds + " chit funds, " + bids + " bids (average " + Money.format(getAverageBidPaise()) +
+                    ", highest " + Money.format(highestBidPaise) + "), " + settledMonths + " months settled, " +
+                    Money.format(distributedPaise) + " distributed";
+        }
+    }
+
+    public static final class VerifyReport {
+        int funds;
+        int participants;
+        int driftCount;
+        long millis;
+        final List<String> drift = new ArrayList<>();
+
+        void drift(String line) {
+            driftCount++;
+            if (drift.size() < MAX_REPORTED_DRIFT) {
+                drift.add(line);
+            }
+        }
+
+        public boolean isClean() {
+            return driftCount == 0;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            for (String line : drift) {
+                out.append(line).append('\n');
+            }
+            if (driftCount > drift.size()) {
+                out.append("... and ").append(driftCount - drift.size()).append(" more\n");
+            }
+            return out.append("Checked ").append(funds).append(" chit funds and ").append(participants)
+                    .append(" participants in ").append(millis).append(" ms: ")
+                    .append(driftCount == 0 ? "no drift" : driftCount + " differences").toString();
+        }
+    }
+}
@@ -0,0 +1,561 @@
+package chitfund;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Monthly installments, the foreman's commission, dividends and what every member
+// still owes. Each member pays the chit value spread over the fund's months. Every
+// auctioned month the foreman takes a commission on the chit value out of the
+// discount (chit value less the winning bid), and what is left of the discount is
+// shared equally among the members, reducing that month's installment. Amounts are
+// whole paise; remainders below a paisa per member are not shared out.
+//
+// The Installment table holds the resulting schedule, one row per settled month of a
+// live fund, and MemberDues the dues ledger: per membership, what has been charged,
+// what has been paid (Payment rows) and the balance. Both are rebuilt by run(), the
+// month-end pass: funds, settlements and memberships with their payment totals are
+// read into primitive arrays, the schedule and every balance are computed in flat
+// loops over them, and the two tables are rewritten in one transaction.
+//
+// Recorded settlements keep their own dividend, the discount shared before any
+// commission, as do FundStats and the event log. The schedule's dividend is net of
+// commission and is named so (netDividendPerMemberPaise); with commission set to 0
+// the two agree.
+public class InstallmentEngine {
+    // 5% of the chit value, the most the Chit Funds Act allows
+    public static final int DEFAULT_COMMISSION_BASIS_POINTS = 500;
+    static final int ROWS_PER_STATEMENT = 100;
+
+    static final String INSERT_PAYMENT =
+            "INSERT INTO Payment (chitFundId, participantId, amountPaise, paidAt) VALUES (?, ?, ?, ?)";
+
+    static final String INSTALLMENT_COLUMNS =
+            "chitFundId, month, installmentPaise, commissionPaise, netDividendPerMemberPaise, duePaise";
+    static final String PAYMENT_COLUMNS = "id, chitFundId, participantId, amountPaise, paidAt, importKey";
+    static final String DUES_COLUMNS = "chitFundId, participantId, chargedPaise, paidPaise, duePaise, monthsBehind";
+
+    private final int commissionBasisPoints;
+
+    public InstallmentEngine(int commissionBasisPoints) {
+        if (commissionBasisPoints < 0 || commissionBasisPoints > 10_000) {
+            throw new IllegalArgumentException("Commission must be between 0 and 100%");
+        }
+        this.commissionBasisPoints = commissionBasisPoints;
+    }
+
+    // chitfund.dues.commissionPercent sets the commission, 5 by default
+    public static InstallmentEngine fromSystemProperties() {
+        String percent = System.getProperty("chitfund.dues.commissionPercent");
+        return new InstallmentEngine(percent == null ? DEFAULT_COMMISSION_BASIS_POINTS
+                : (int) Math.round(Double.parseDouble(percent) * 100));
+    }
+
+    static void createTables(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS Payment (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "chitFundId TEXT NOT NULL, " +
+                "participantId TEXT NOT NULL, " +
+                "amountPaise INTEGER NOT NULL, " +
+                "paidAt TEXT, " +
+                "importKey TEXT, " +
+                "FOREIGN KEY(chitFundId) REFERENCES ChitFund(id), " +
+                "FOREIGN KEY(participantId) REFERENCES Participant(id))");
+        // Covers the per-member totals of the month-end run
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_Payment_member ON Payment(chitFundId, participantId, amountPaise)");
+        stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_Payment_importKey ON Payment(importKey)");
+        stmt.execute("CREATE TABLE IF NOT EXISTS Installment (" +
+                "chitFundId TEXT NOT NULL, " +
+                "month INTEGER NOT NULL, " +
+                "installmentPaise INTEGER NOT NULL, " +
+                "commissionPaise INTEGER NOT NULL, " +
+                "netDividendPerMemberPaise INTEGER NOT NULL, " +
+                "duePaise INTEGER NOT NULL, " +
+                "PRIMARY KEY (chitFundId, month))");
+        stmt.execute("CREATE TABLE IF NOT EXISTS MemberDues (" +
+                "chitFundId TEXT NOT NULL, " +
+                "participantId TEXT NOT NULL, " +
+                "chargedPaise INTEGER NOT NULL, " +
+                "paidPaise INTEGER NOT NULL, " +
+                "duePaise INTEGER NOT NULL, " +
+                "monthsBehind INTEGER NOT NULL, " +
+                "PRIMARY KEY (chitFundId, participantId))");
+
+        // Archived along with their funds
+        stmt.execute("CREATE TABLE IF NOT EXISTS PaymentArchive (" +
+                "id INTEGER PRIMARY KEY, " +
+                "chitFundId TEXT NOT NULL, " +
+                "participantId TEXT NOT NULL, " +
+                "amountPaise INTEGER NOT NULL, " +
+                "paidAt TEXT, " +
+                "importKey TEXT)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_PaymentArchive_member ON PaymentArchive(chitFundId, participantId)");
+        stmt.execute("CREATE TABLE IF NOT EXISTS InstallmentArchive (" +
+                "chitFundId TEXT NOT NULL, " +
+                "month INTEGER NOT NULL, " +
+                "installmentPaise INTEGER NOT NULL, " +
+                "commissionPaise INTEGER NOT NULL, " +
+                "netDividendPerMemberPaise INTEGER NOT NULL, " +
+                "duePaise INTEGER NOT NULL, " +
+                "PRIMARY KEY (chitFundId, month))");
+        stmt.execute("CREATE TABLE IF NOT EXISTS MemberDuesArchive (" +
+                "chitFundId TEXT NOT NULL, " +
+                "participantId TEXT NOT NULL, " +
+                "chargedPaise INTEGER NOT NULL, " +
+                "paidPaise INTEGER NOT NULL, " +
+                "duePaise INTEGER NOT NULL, " +
+                "monthsBehind INTEGER NOT NULL, " +
+                "PRIMARY KEY (chitFundId, participantId))");
+        stmt.execute("CREATE VIEW IF NOT EXISTS AllPayments AS " +
+                "SELECT " + PAYMENT_COLUMNS + " FROM Payment UNION ALL " +
+                "SELECT " + PAYMENT_COLUMNS + " FROM PaymentArchive");
+        stmt.execute("CREATE VIEW IF NOT EXISTS AllInstallments AS " +
+                "SELECT " + INSTALLMENT_COLUMNS + " FROM Installment UNION ALL " +
+                "SELECT " + INSTALLMENT_COLUMNS + " FROM InstallmentArchive");
+        stmt.execute("CREATE VIEW IF NOT EXISTS AllMemberDues AS " +
+                "SELECT " + DUES_COLUMNS + " FROM MemberDues UNION ALL " +
+                "SELECT " + DUES_COLUMNS + " FROM MemberDuesArchive");
+    }
+
+    // What each member pays a month before dividends
+    public static long installment(long totalAmount, int numberOfMonths) {
+        return numberOfMonths <= 0 ? 0 : totalAmount / numberOfMonths;
+    }
+
+    // The foreman's cut of one auction
+    public long commission(long totalAmount) {
+        return totalAmount * commissionBasisPoints / 10_000;
+    }
+
+    // Each member's share of an auction's discount, after the commission
+    public long netDividendPerMember(long totalAmount, long winningAmount, int members) {
+        long pool = totalAmount - winningAmount - commission(totalAmount);
+        return members <= 0 || pool <= 0 ? 0 : pool / members;
+    }
+
+    // Rebuilds the schedule and the dues ledger from the current funds, settlements,
+    // memberships and payments, in one transaction on the writer connection
+    public RunReport run(Connection connection) throws SQLException {
+        long start = System.nanoTime();
+        Metrics.Operation metrics = Metrics.get().operation("dues.run");
+        RunReport report = new RunReport(commissionBasisPoints);
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            Funds funds = loadFunds(connection);
+            Members members = loadMembers(connection, funds);
+            Months months = loadMonths(connection, funds);
+            report.loadMillis = millisSince(start);
+
+            long computeStart = System.nanoTime();
+            schedule(funds, months, members, report);
+            balance(funds, months, members, report);
+            report.computeMillis = millisSince(computeStart);
+
+            long writeStart = System.nanoTime();
+            write(connection, funds, months, members);
+            connection.commit();
+            report.writeMillis = millisSince(writeStart);
+            metrics.record(start);
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            metrics.recordError(start);
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        report.totalMillis = millisSince(start);
+        return report;
+    }
+
+    // Live funds by position
+    static final class Funds {
+        final Map<String, Integer> index = new HashMap<>();
+        final List<String> ids = new ArrayList<>();
+        long[] total = new long[1024];
+        int[] months = new int[1024];
+        // Filled in as memberships and settlements are read
+        int[] memberCount;
+        int[] firstMonthRow;
+        int[] monthRows;
+
+        int add(String id, long totalAmount, int numberOfMonths) {
+            int fund = ids.size();
+            if (fund == total.length) {
+                total = Arrays.copyOf(total, fund * 2);
+                months = Arrays.copyOf(months, fund * 2);
+            }
+            ids.add(id);
+            index.put(id, fund);
+            total[fund] = totalAmount;
+            months[fund] = numberOfMonths;
+            return fund;
+        }
+
+        int count() {
+            return ids.size();
+        }
+    }
+
+    // One row per membership: its fund's position, the participant and payments so far;
+    // charged, due and monthsBehind are computed
+    static final class Members {
+        int count;
+        int[] fund = new int[4096];
+        String[] participant = new String[4096];
+        long[] paid = new long[4096];
+        long[] due;
+        int[] monthsBehind;
+
+        void add(int fundPosition, String participantId, long paidPaise) {
+            if (count == fund.length) {
+                fund = Arrays.copyOf(fund, count * 2);
+                participant = Arrays.copyOf(participant, count * 2);
+                paid = Arrays.copyOf(paid, count * 2);
+            }
+            fund[count] = fundPosition;
+            participant[count] = participantId;
+            paid[count] = paidPaise;
+            count++;
+        }
+    }
+
+    // One row per settled month, grouped by fund in month order. charged is the
+    // running total of what a member owes up to and including that month.
+    static final class Months {
+        int count;
+        int[] fund = new int[4096];
+        int[] month = new int[4096];
+        long[] winningAmount = new long[4096];
+        long[] installment;
+        long[] commission;
+        long[] netDividend;
+        long[] due;
+        long[] charged;
+
+        void add(int fundPosition, int auctionMonth, long amountPaise) {
+            if (count == fund.length) {
+                fund = Arrays.copyOf(fund, count * 2);
+                month = Arrays.copyOf(month, count * 2);
+                winningAmount = Arrays.copyOf(winningAmount, count * 2);
+            }
+            fund[count] = fundPosition;
+            month[count] = auctionMonth;
+            winningAmount[count] = amountPaise;
+            count++;
+        }
+    }
+
+    private static Funds loadFunds(Connection connection) throws SQLException {
+        Funds funds = new Funds();
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(ChitFundLoader.DEFAULT_FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery("SELECT id, totalAmountPaise, numberOfMonths FROM ChitFund")) {
+                while (rs.next()) {
+                    funds.add(rs.getString(1), rs.getLong(2), rs.getInt(3));
+                }
+            }
+        }
+        funds.memberCount = new int[funds.count()];
+        funds.firstMonthRow = new int[funds.count()];
+        funds.monthRows = new int[funds.count()];
+        return funds;
+    }
+
+    // In primary key order, which keeps a fund's members together and MemberDues
+    // inserts in index order. Payments by anyone who isn't a member of the fund are
+    // left out.
+    private static Members loadMembers(Connection connection, Funds funds) throws SQLException {
+        Members members = new Members();
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(ChitFundLoader.DEFAULT_FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT m.chitFundId, m.participantId, (SELECT COALESCE(SUM(p.amountPaise), 0) FROM Payment p " +
+                    "WHERE p.chitFundId = m.chitFundId AND p.participantId = m.participantId) " +
+                    "FROM ChitFundParticipant m ORDER BY m.chitFundId, m.participantId")) {
+                String lastFundId = null;
+                int fund = -1;
+                while (rs.next()) {
+                    String fundId = rs.getString(1);
+                    if (!fundId.equals(lastFundId)) {
+                        Integer position = funds.index.get(fundId);
+                        fund = position != null ? position : -1;
+                        lastFundId = fundId;
+                    }
+                    if (fund >= 0) {
+                        members.add(fund, rs.getString(2), rs.getLong(3));
+                        funds.memberCount[fund]++;
+                    }
+                }
+            }
+        }
+        members.due = new long[members.count];
+        members.monthsBehind = new int[members.count];
+        return members;
+    }
+
+    private static Months loadMonths(Connection connection, Funds funds) throws SQLException {
+        Months months = new Months();
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(ChitFundLoader.DEFAULT_FETCH_SIZE);
+            // The primary key index returns each fund's months together and in order
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT chitFundId, month, amountPaise FROM Settlement ORDER BY chitFundId, month")) {
+                String lastFundId = null;
+                int fund = -1;
+                while (rs.next()) {
+                    String fundId = rs.getString(1);
+                    if (!fundId.equals(lastFundId)) {
+                        Integer position = funds.index.get(fundId);
+                        fund = position != null ? position : -1;
+                        lastFundId = fundId;
+                        if (fund >= 0) {
+                            funds.firstMonthRow[fund] = months.count;
+                        }
+                    }
+                    if (fund >= 0) {
+                        months.add(fund, rs.getInt(2), rs.getLong(3));
+                        funds.monthRows[fund]++;
+                    }
+                }
+            }
+        }
+        int rows = months.count;
+        months.installment = new long[rows];
+        months.commission = new long[rows];
+        months.netDividend = new long[rows];
+        months.due = new long[rows];
+        months.charged = new long[rows];
+        return months;
+    }
+
+    // Installment, commission, net dividend and net due of every settled month, and the
+    // running charge per fund
+    private void schedule(Funds funds, Months months, Members members, RunReport report) {
+        long[] total = funds.total;
+        int[] numberOfMonths = funds.months;
+        int[] memberCount = funds.memberCount;
+        int[] fund = months.fund;
+        long[] winningAmount = months.winningAmount;
+        long[] installment = months.installment;
+        long[] commission = months.commission;
+        long[] netDividend = months.netDividend;
+        long[] due = months.due;
+        long[] charged = months.charged;
+        long commissionTotal = 0;
+        for (int row = 0; row < months.count; row++) {
+            int f = fund[row];
+            installment[row] = installment(total[f], numberOfMonths[f]);
+            commission[row] = commission(total[f]);
+            netDividend[row] = netDividendPerMember(total[f], winningAmount[row], memberCount[f]);
+            due[row] = Math.max(0, installment[row] - netDividend[row]);
+            boolean first = row == 0 || fund[row - 1] != f;
+            charged[row] = (first ? 0 : charged[row - 1]) + due[row];
+            commissionTotal += commission[row];
+        }
+        report.funds = funds.count();
+        report.months = months.count;
+        report.memberships = members.count;
+        report.commissionPaise = commissionTotal;
+    }
+
+    // Every member's balance, and how many charged months their payments don't cover
+    private static void balance(Funds funds, Months months, Members members, RunReport report) {
+        int[] firstMonthRow = funds.firstMonthRow;
+        int[] monthRows = funds.monthRows;
+        long[] charged = months.charged;
+        int[] fund = members.fund;
+        long[] paid = members.paid;
+        long[] due = members.due;
+        int[] monthsBehind = members.monthsBehind;
+        long chargedTotal = 0;
+        long paidTotal = 0;
+        long outstanding = 0;
+        long advance = 0;
+        int owing = 0;
+        int behind = 0;
+        for (int i = 0; i < members.count; i++) {
+            int f = fund[i];
+            int rows = monthRows[f];
+            long fundCharged = rows == 0 ? 0 : charged[firstMonthRow[f] + rows - 1];
+            long balance = fundCharged - paid[i];
+            due[i] = balance;
+            chargedTotal += fundCharged;
+            paidTotal += paid[i];
+            if (balance > 0) {
+                outstanding += balance;
+                owing++;
+                // Months whose running charge is more than has been paid
+                int covered = upperBound(charged, firstMonthRow[f], firstMonthRow[f] + rows, paid[i]) - firstMonthRow[f];
+                monthsBehind[i] = rows - covered;
+                if (monthsBehind[i] > 1) {
+                    behind++;
+                }
+            } else {
+                advance -= balance;
+                monthsBehind[i] = 0;
+            }
+        }
+        report.chargedPaise = chargedTotal;
+        report.paidPaise = paidTotal;
+        report.outstandingPaise = outstanding;
+        report.advancePaise = advance;
+        report.membersOwing = owing;
+        report.membersBehind = behind;
+    }
+
+    // First position in [from, to) holding a value greater than key
+    private static int upperBound(long[] sorted, int from, int to, long key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (sorted[mid] <= key) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    private static void write(Connection connection, Funds funds, Months months, Members members)
+            throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("DELETE FROM Installment");
+            stmt.executeUpdate("DELETE FROM MemberDues");
+        }
+        try (RowWriter installments = new RowWriter(connection, "Installment", INSTALLMENT_COLUMNS, 6)) {
+            for (int row = 0; row < months.count; row++) {
+                installments.add(funds.ids.get(months.fund[row]), months.month[row], months.installment[row],
+                        months.commission[row], months.netDividend[row], months.due[row]);
+            }
+        }
+        try (RowWriter dues = new RowWriter(connection, "MemberDues", DUES_COLUMNS, 6)) {
+            for (int i = 0; i < members.count; i++) {
+                int f = members.fund[i];
+                int rows = funds.monthRows[f];
+                long charged = rows == 0 ? 0 : months.charged[funds.firstMonthRow[f] + rows - 1];
+                dues.add(funds.ids.get(f), members.participant[i], charged, members.paid[i], members.due[i],
+                        members.monthsBehind[i]);
+            }
+        }
+    }
+
+    // Writes rows ROWS_PER_STATEMENT at a time with one multi-row INSERT
+    private static final class RowWriter implements AutoCloseable {
+        private final Connection connection;
+        private final String table;
+        private final String columnList;
+        private final int columns;
+        private final Object[] params;
+        private PreparedStatement fullStatement;
+        private int rows;
+
+        RowWriter(Connection connection, String table, String columnList, int columns) {
+            this.connection = connection;
+            this.table = table;
+            this.columnList = columnList;
+            this.columns = columns;
+            this.params = new Object[ROWS_PER_STATEMENT * columns];
+        }
+
+        void add(Object... values) throws SQLException {
+            System.arraycopy(values, 0, params, rows * columns, columns);
+            if (++rows == ROWS_PER_STATEMENT) {
+                if (fullStatement == null) {
+                    fullStatement = connection.prepareStatement(insertSql(ROWS_PER_STATEMENT));
+                }
+                execute(fullStatement);
+            }
+        }
+
+        private void execute(PreparedStatement pstmt) throws SQLException {
+            for (int i = 0; i < rows * columns; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            pstmt.executeUpdate();
+            rows = 0;
+        }
+
+        private String insertSql(int rowCount) {
+            StringBuilder row = new StringBuilder("(");
+            for (int i = 0; i < columns; i++) {
+                row.append(i == 0 ? "?" : ", ?");
+            }
+            row.append(')');
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(table)
+                    .append(" (").append(columnList).append(") VALUES ");
+            for (int i = 0; i < rowCount; i++) {
+                sql.append(i == 0 ? "" : ", ").append(row);
+            }
+            return sql.toString();
+        }
+
+        // Writes what is left over
+        @Override
+        public void close() throws SQLException {
+            try {
+                if (rows > 0) {
+                    try (PreparedStatement pstmt = connection.prepareStatement(insertSql(rows))) {
+                        execute(pstmt);
+                    }
+                }
+            } finally {
+                if (fullStatement != null) {
+                    fullStatement.close();
+                }
+            }
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    public static class RunReport {
+        private final int commissionBasisPoints;
+        int funds;
+        int months;
+        int memberships;
+        long commissionPaise;
+        long chargedPaise;
+        long paidPaise;
+        long outstandingPaise;
+        long advancePaise;
+        int membersOwing;
+        int membersBehind;
+        long loadMillis;
+        long computeMillis;
+        long writeMillis;
+        long totalMillis;
+
+        RunReport(int commissionBasisPoints) {
+            this.commissionBasisPoints = commissionBasisPoints;
+        }
+
+        public long getOutstandingPaise() {
+            return outstandingPaise;
+        }
+
+        public int getMembersOwing() {
+            return membersOwing;
+        }
+
+        @Override
+        public String toString() {
+            return "Dues for " + memberships + " memberships of " + funds + " chit funds over " + months +
+                    " settled months: " + Money.format(chargedPaise) + " charged, " + Money.format(paidPaise) +
+                    " paid, " + Money.format(outstandingPaise) + " outstanding from " + membersOwing + " members (" +
+                    membersBehind + " more than a month behind), " + Money.format(advancePaise) + " paid ahead; " +
+                    "foreman's commission " + Money.format(commissionPaise) + " at " +
+                    Money.format(commissionBasisPoints) + "%. Took " + totalMillis + " ms (load " + loadMillis +
+                    " ms, compute " + computeMillis + " ms, write " + writeMillis + " ms)";
+        }
+    }
+}
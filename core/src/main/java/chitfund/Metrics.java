@@ -0,0 +1,209 @@
+package chitfund;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Process-wide counters and latency histograms, one per named operation: UI actions
+// (ui.*), SQL statements run through a CachedConnection (sql ...), persistence queue
+// commits, loading, reports and EDT latency. Read them over JMX as
+// chitfund:type=Metrics or as text with dump(). Set chitfund.metrics.enabled=false to
+// turn recording off.
+public class Metrics implements MetricsMBean {
+    public static final String OBJECT_NAME = "chitfund:type=Metrics";
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("chitfund.metrics.enabled", "true"));
+    private static final Metrics INSTANCE = new Metrics();
+    private static final int NAME_WIDTH = 48;
+
+    public static final class Operation {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        // startNanos comes from Metrics.start()
+        public void record(long startNanos) {
+            if (ENABLED) {
+                latency.record(System.nanoTime() - startNanos);
+            }
+        }
+
+        public void recordError(long startNanos) {
+            if (ENABLED) {
+                latency.record(System.nanoTime() - startNanos);
+                errors.increment();
+            }
+        }
+
+        // Records a duration measured by the caller
+        public void recordNanos(long nanos, boolean failed) {
+            if (ENABLED) {
+                latency.record(nanos);
+                if (failed) {
+                    errors.increment();
+                }
+            }
+        }
+
+        void reset() {
+            latency.reset();
+            errors.reset();
+        }
+
+        @Override
+        public String toString() {
+            String shown = name.length() > NAME_WIDTH ? name.substring(0, NAME_WIDTH - 3) + "..." : name;
+            return String.format("%-" + NAME_WIDTH + "s %9d %6d %9.3f %9.3f %9.3f %9.3f %9.3f %11.1f",
+                    shown, latency.getCount(), errors.sum(),
+                    latency.getMeanNanos() / 1e6,
+                    latency.getPercentileNanos(50) / 1e6,
+                    latency.getPercentileNanos(90) / 1e6,
+                    latency.getPercentileNanos(99) / 1e6,
+                    latency.getMaxNanos() / 1e6,
+                    latency.getTotalNanos() / 1e6);
+        }
+    }
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    // Callers on hot paths should keep the returned operation rather than look it up
+    // each time
+    public Operation operation(String name) {
+        return operations.computeIfAbsent(name, Operation::new);
+    }
+
+    // Times execute, executeQuery, executeUpdate and executeBatch under the statement's
+    // SQL; every other call goes straight through
+    public PreparedStatement instrument(PreparedStatement pstmt, String sql) {
+        if (!ENABLED) {
+            return pstmt;
+        }
+        Operation operation = operation("sql " + sql.replaceAll("\\s+", " ").trim());
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                try {
+                    return method.invoke(pstmt, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            long start = System.nanoTime();
+            try {
+                Object result = method.invoke(pstmt, args);
+                operation.record(start);
+                return result;
+            } catch (InvocationTargetException e) {
+                operation.recordError(start);
+                throw e.getCause();
+            }
+        };
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, handler);
+    }
+
+    // Safe to call more than once
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public String[] getOperations() {
+        return new TreeMap<>(operations).keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public String[] getSummary() {
+        List<String> lines = new ArrayList<>();
+        for (Operation operation : new TreeMap<>(operations).values()) {
+            lines.add(operation.toString());
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    @Override
+    public long count(String operation) {
+        Operation op = operations.get(operation);
+        return op == null ? 0 : op.latency.getCount();
+    }
+
+    @Override
+    public long errors(String operation) {
+        Operation op = operations.get(operation);
+        return op == null ? 0 : op.getErrors();
+    }
+
+    @Override
+    public double percentileMillis(String operation, double percentile) {
+        Operation op = operations.get(operation);
+        return op == null ? 0 : op.latency.getPercentileNanos(percentile) / 1e6;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-" + NAME_WIDTH + "s %9s %6s %9s %9s %9s %9s %9s %11s%n",
+                "operation", "count", "errors", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms", "total ms"));
+        for (String line : getSummary()) {
+            out.append(line).append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (Operation operation : operations.values()) {
+            operation.reset();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package chitfund;
+
+// Management interface for Metrics, registered as chitfund:type=Metrics
+public interface MetricsMBean {
+    boolean isEnabled();
+
+    String[] getOperations();
+
+    // One line per operation: count, errors and latency percentiles
+    String[] getSummary();
+
+    long count(String operation);
+
+    long errors(String operation);
+
+    double percentileMillis(String operation, double percentile);
+
+    String dump();
+
+    void reset();
+}
@@ -0,0 +1,522 @@
+package chitfund;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+// Binary image of the in-memory model, so startup doesn't rebuild everything from
+// SQLite. The image records the database's high-water marks when it was taken. On
+// restore the file is memory-mapped and decoded, and then only rows added since
+// those marks are read: new funds, participants and memberships, settlements (which
+// advance a fund's month and pay its winner), and newer bids. A missing, corrupt or
+// out-of-date snapshot, or one taken from another database, falls back to
+// ChitFundLoader.
+//
+// Layout, big-endian: magic, format version, payload length, CRC32 of the payload;
+// then the payload: marks, participants, and funds with their members and the open
+// month's bid ledger.
+public class ModelSnapshot {
+    public static final int FORMAT_VERSION = 2;
+    public static final String DEFAULT_FILE = "chitfund.snapshot";
+
+    private static final int MAGIC = 0x43465350;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+
+    private final Path file;
+
+    public ModelSnapshot(Path file) {
+        this.file = file;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Builds the model from the snapshot and newer rows when it can, otherwise from a
+    // full load
+    public RestoreReport restore(Connection connection, int fetchSize) throws SQLException {
+        return restore(connection, fetchSize, decode());
+    }
+
+    // Maps and decodes the file without touching the database, so it can run while the
+    // database is still being opened
+    public Decoded decode() {
+        long start = System.nanoTime();
+        Decoded decoded = new Decoded();
+        if (!Files.exists(file)) {
+            decoded.failure = "no snapshot";
+            return decoded;
+        }
+        try {
+            ChitFundManagementSystem system = new ChitFundManagementSystem();
+            decoded.marks = read(system);
+            decoded.system = system;
+        } catch (IOException | RuntimeException e) {
+            decoded.failure = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+        decoded.decodeMillis = elapsedMillis(start);
+        return decoded;
+    }
+
+    // Brings a decoded snapshot up to date with the database, or falls back to a full
+    // load when it can't be used. The decoded model is taken over, so decode again for
+    // another restore.
+    public RestoreReport restore(Connection connection, int fetchSize, Decoded decoded) throws SQLException {
+        long start = System.nanoTime();
+        RestoreReport report = new RestoreReport();
+        Marks current = Marks.read(connection);
+        if (decoded.system == null) {
+            report.fallbackReason = decoded.failure;
+        } else {
+            try {
+                String stale = decoded.marks.staleReason(current);
+                if (stale == null) {
+                    replay(connection, decoded.system, decoded.marks, report);
+                    // The image holds no running totals; the table is one row per fund
+                    FundStatsTable.loadInto(connection, decoded.system);
+                    report.system = decoded.system;
+                    report.totalMillis = decoded.decodeMillis + elapsedMillis(start);
+                    return report;
+                }
+                report.fallbackReason = stale;
+            } catch (RuntimeException e) {
+                report.fallbackReason = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+        }
+
+        report.system = new ChitFundManagementSystem();
+        report.fullLoad = new ChitFundLoader(connection, fetchSize).load(report.system);
+        report.totalMillis = elapsedMillis(start);
+        return report;
+    }
+
+    // Encodes the model together with the database's current marks. The model must
+    // match what has been committed: flush pending writes first.
+    byte[] encode(ChitFundManagementSystem system, Connection connection) throws SQLException {
+        Marks marks = Marks.read(connection);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            // Header, patched once the payload is known
+            out.write(new byte[HEADER_BYTES]);
+            marks.writeTo(out);
+
+            Collection<Participant> participants = system.getParticipants();
+            Map<String, Integer> positions = new HashMap<>(participants.size() * 2);
+            out.writeInt(participants.size());
+            for (Participant participant : participants) {
+                positions.put(participant.getParticipantId(), positions.size());
+                writeString(out, participant.getParticipantId());
+                writeString(out, participant.getName());
+                out.writeLong(participant.getAmountReceived());
+            }
+
+            List<ChitFundSystem> funds = system.getChitFunds();
+            out.writeInt(funds.size());
+            for (ChitFundSystem fund : funds) {
+                writeString(out, fund.getChitFundId());
+                out.writeLong(fund.getTotalAmount());
+                out.writeInt(fund.getNumberOfMonths());
+                out.writeInt(fund.getCurrentMonth());
+                List<Participant> members = fund.getParticipants();
+                out.writeInt(members.size());
+                for (Participant member : members) {
+                    out.writeInt(positions.get(member.getParticipantId()));
+                }
+                BidLedger ledger = fund.getLedger();
+                out.writeInt(ledger.count());
+                for (int row = 0; row < ledger.count(); row++) {
+                    out.writeInt(ledger.memberAt(row));
+                    out.writeLong(ledger.amountAt(row));
+                }
+            }
+        } catch (IOException e) {
+            // Writing to memory doesn't fail
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] image = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(image, HEADER_BYTES, image.length - HEADER_BYTES);
+        ByteBuffer.wrap(image)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(image.length - HEADER_BYTES)
+                .putLong(crc.getValue());
+        return image;
+    }
+
+    // Replaces the snapshot file. The image goes to a temporary file first so a crash
+    // never leaves a half-written snapshot behind.
+    void write(byte[] image) throws IOException {
+        Path partial = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(image);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void save(ChitFundManagementSystem system, Connection connection) throws SQLException, IOException {
+        write(encode(system, connection));
+    }
+
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private Marks read(ChitFundManagementSystem system) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("snapshot is truncated");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a snapshot file");
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("snapshot format " + version + ", expected " + FORMAT_VERSION);
+            }
+            long length = buffer.getLong();
+            long checksum = buffer.getLong();
+            if (length != size - HEADER_BYTES) {
+                throw new IOException("snapshot is truncated");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice());
+            if (crc.getValue() != checksum) {
+                throw new IOException("snapshot checksum mismatch");
+            }
+
+            Marks marks = Marks.readFrom(buffer);
+            Participant[] participants = new Participant[buffer.getInt()];
+            for (int i = 0; i < participants.length; i++) {
+                Participant participant = new Participant(readString(buffer), readString(buffer));
+                participant.receiveAmount(buffer.getLong());
+                system.addParticipant(participant);
+                participants[i] = participant;
+            }
+            int funds = buffer.getInt();
+            for (int f = 0; f < funds; f++) {
+                ChitFundSystem fund = new ChitFundSystem(readString(buffer), buffer.getLong(),
+                        buffer.getInt(), buffer.getInt());
+                system.addChitFund(fund);
+                int members = buffer.getInt();
+                for (int m = 0; m < members; m++) {
+                    fund.addParticipant(participants[buffer.getInt()]);
+                }
+                int bids = buffer.getInt();
+                for (int b = 0; b < bids; b++) {
+                    fund.addMemberBid(buffer.getInt(), buffer.getLong());
+                }
+            }
+            return marks;
+        }
+    }
+
+    // Brings a decoded snapshot up to date with rows written after it was taken.
+    // Rows are only ever added, and a settlement is the only thing that changes an
+    // existing fund or participant.
+    private static void replay(Connection connection, ChitFundManagementSystem system, Marks marks,
+                               RestoreReport report) throws SQLException {
+        long start = System.nanoTime();
+        // Funds whose open month has to be read in full rather than from the mark
+        Set<ChitFundSystem> reloadBids = new HashSet<>();
+        // Funds read from the table, already at their current month
+        Set<ChitFundSystem> newFunds = new HashSet<>();
+
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT id, name, amountReceivedPaise FROM Participant WHERE rowid > ? ORDER BY rowid")) {
+            stmt.setLong(1, marks.participantRowid);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Participant participant = new Participant(rs.getString(1), rs.getString(2));
+                    participant.receiveAmount(rs.getLong(3));
+                    system.addParticipant(participant);
+                    report.participants++;
+                }
+            }
+        }
+
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT id, totalAmountPaise, numberOfMonths, currentMonth FROM ChitFund WHERE rowid > ? ORDER BY rowid")) {
+            stmt.setLong(1, marks.fundRowid);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ChitFundSystem fund = new ChitFundSystem(rs.getString(1), rs.getLong(2), rs.getInt(3), rs.getInt(4));
+                    system.addChitFund(fund);
+                    newFunds.add(fund);
+                    reloadBids.add(fund);
+                    report.funds++;
+                }
+            }
+        }
+
+        // Memberships have no rowid to compare against; they are only re-read when
+        // their count has changed
+        if (Marks.countMemberships(connection) != marks.memberships) {
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT chitFundId, participantId FROM ChitFundParticipant")) {
+                while (rs.next()) {
+                    ChitFundSystem fund = system.findFund(rs.getString(1));
+                    Participant participant = system.getParticipant(rs.getString(2));
+                    if (fund != null && participant != null && fund.findParticipant(participant.getParticipantId()) == null) {
+                        fund.addParticipant(participant);
+                        report.memberships++;
+                    }
+                }
+            }
+        }
+
+        // Settlements advance the month of funds in the snapshot, one month each, in the
+        // order they were made. Winners' balances are re-read afterwards since new
+        // participants already include their payouts.
+        Set<Participant> winners = new HashSet<>();
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT chitFundId, month, participantId, amountPaise, dividendPerMemberPaise, settledAt " +
+                "FROM Settlement WHERE rowid > ? ORDER BY rowid")) {
+            stmt.setLong(1, marks.settlementRowid);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ChitFundSystem fund = system.findFund(rs.getString(1));
+                    Participant winner = system.getParticipant(rs.getString(3));
+                    if (fund == null || winner == null) {
+                        throw new IllegalStateException("settlement of unknown chit fund " + rs.getString(1));
+                    }
+                    if (!newFunds.contains(fund)) {
+                        fund.applySettlement(new SettlementResult(fund, rs.getInt(2), winner, rs.getLong(4),
+                                rs.getLong(5), Instant.parse(rs.getString(6))));
+                        reloadBids.add(fund);
+                    }
+                    winners.add(winner);
+                    report.settlements++;
+                }
+            }
+        }
+        if (!winners.isEmpty()) {
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT amountReceivedPaise FROM Participant WHERE id = ?")) {
+                for (Participant winner : winners) {
+                    stmt.setString(1, winner.getParticipantId());
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            winner.receiveAmount(rs.getLong(1) - winner.getAmountReceived());
+                        }
+                    }
+                }
+            }
+        }
+
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT participantId, bidAmountPaise FROM Bid WHERE chitFundId = ? AND auctionMonth = ? ORDER BY id")) {
+            for (ChitFundSystem fund : reloadBids) {
+                stmt.setString(1, fund.getChitFundId());
+                stmt.setInt(2, fund.getCurrentMonth());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        addBid(fund, rs.getString(1), rs.getLong(2), report);
+                    }
+                }
+            }
+        }
+
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT chitFundId, participantId, bidAmountPaise, auctionMonth FROM Bid WHERE id > ? ORDER BY id")) {
+            stmt.setLong(1, marks.bidId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ChitFundSystem fund = system.findFund(rs.getString(1));
+                    if (fund != null && !reloadBids.contains(fund) && rs.getInt(4) == fund.getCurrentMonth()) {
+                        addBid(fund, rs.getString(2), rs.getLong(3), report);
+                    }
+                }
+            }
+        }
+        report.replayMillis = elapsedMillis(start);
+    }
+
+    private static void addBid(ChitFundSystem fund, String participantId, long amountPaise, RestoreReport report) {
+        Participant participant = fund.findParticipant(participantId);
+        if (participant != null) {
+            fund.addBid(participant, amountPaise);
+            report.bids++;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    // Where the database stood when a snapshot was taken. Apart from archiving, which
+    // is counted by archiveRun, every table only grows, so rows past these marks are
+    // exactly the ones the snapshot hasn't seen.
+    static final class Marks {
+        String url;
+        int schemaVersion;
+        long fundRowid;
+        long participantRowid;
+        long bidId;
+        long settlementRowid;
+        long memberships;
+        long archiveRun;
+
+        static Marks read(Connection connection) throws SQLException {
+            Marks marks = new Marks();
+            marks.url = connection.getMetaData().getURL();
+            marks.schemaVersion = SchemaMigrations.readVersion(connection);
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT " +
+                         "(SELECT COALESCE(MAX(rowid), 0) FROM ChitFund), " +
+                         "(SELECT COALESCE(MAX(rowid), 0) FROM Participant), " +
+                         "(SELECT COALESCE(MAX(id), 0) FROM Bid), " +
+                         "(SELECT COALESCE(MAX(rowid), 0) FROM Settlement)")) {
+                rs.next();
+                marks.fundRowid = rs.getLong(1);
+                marks.participantRowid = rs.getLong(2);
+                marks.bidId = rs.getLong(3);
+                marks.settlementRowid = rs.getLong(4);
+            }
+            marks.memberships = countMemberships(connection);
+            marks.archiveRun = FundArchive.lastRun(connection);
+            return marks;
+        }
+
+        static long countMemberships(Connection connection) throws SQLException {
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM ChitFundParticipant")) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+
+        static Marks readFrom(ByteBuffer buffer) {
+            Marks marks = new Marks();
+            marks.url = readString(buffer);
+            marks.schemaVersion = buffer.getInt();
+            marks.fundRowid = buffer.getLong();
+            marks.participantRowid = buffer.getLong();
+            marks.bidId = buffer.getLong();
+            marks.settlementRowid = buffer.getLong();
+            marks.memberships = buffer.getLong();
+            marks.archiveRun = buffer.getLong();
+            return marks;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            writeString(out, url);
+            out.writeInt(schemaVersion);
+            out.writeLong(fundRowid);
+            out.writeLong(participantRowid);
+            out.writeLong(bidId);
+            out.writeLong(settlementRowid);
+            out.writeLong(memberships);
+            out.writeLong(archiveRun);
+        }
+
+        // Null if the snapshot can be brought up to date from the current database
+        String staleReason(Marks current) {
+            if (!current.url.equals(url)) {
+                return "snapshot was taken from " + url;
+            }
+            if (current.schemaVersion != schemaVersion) {
+                return "snapshot was taken at schema version " + schemaVersion;
+            }
+            if (current.archiveRun != archiveRun) {
+                return "chit funds were archived after the snapshot";
+            }
+            if (current.fundRowid < fundRowid || current.participantRowid < participantRowid ||
+                    current.bidId < bidId || current.settlementRowid < settlementRowid ||
+                    current.memberships < memberships) {
+                return "database is older than the snapshot";
+            }
+            return null;
+        }
+    }
+
+    // A snapshot file read into a model of its own, or why it couldn't be
+    public static class Decoded {
+        ChitFundManagementSystem system;
+        Marks marks;
+        String failure;
+        long decodeMillis;
+    }
+
+    public static class RestoreReport {
+        ChitFundManagementSystem system;
+        // Set when the snapshot could not be used
+        String fallbackReason;
+        ChitFundLoader.LoadReport fullLoad;
+        int funds;
+        int participants;
+        int memberships;
+        int settlements;
+        int bids;
+        long replayMillis;
+        long totalMillis;
+
+        public ChitFundManagementSystem getSystem() {
+            return system;
+        }
+
+        public boolean isFromSnapshot() {
+            return fullLoad == null;
+        }
+
+        @Override
+        public String toString() {
+            if (fullLoad != null) {
+                return "Snapshot not used (" + fallbackReason + "). " + fullLoad;
+            }
+            return "Restored " + system.getChitFunds().size() + " chit funds from snapshot and replayed " +
+                    funds + " funds, " + participants + " participants, " + memberships + " memberships, " +
+                    settlements + " settlements and " + bids + " bids (" + replayMillis + " ms) in " +
+                    totalMillis + " ms";
+        }
+    }
+}
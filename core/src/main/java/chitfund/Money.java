@@ -0,0 +1,57 @@
+package chitfund;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Money is held as a long count of paise everywhere, in memory and in the database,
+// so sums and payouts are exact. Rupee strings are only used at the edges: user
+// input, import files and printed output.
+public final class Money {
+    public static final long PAISE_PER_RUPEE = 100;
+
+    private Money() {
+    }
+
+    // Parses a rupee amount such as "1500" or "1500.25". Amounts are never negative,
+    // and anything finer than a paisa is rejected rather than rounded away.
+    public static long parse(String rupees) {
+        if (rupees == null) {
+            throw new IllegalArgumentException("missing amount");
+        }
+        BigDecimal value;
+        try {
+            value = new BigDecimal(rupees.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad amount '" + rupees + "'");
+        }
+        if (value.signum() < 0) {
+            throw new IllegalArgumentException("negative amount '" + rupees + "'");
+        }
+        try {
+            return value.setScale(2, RoundingMode.UNNECESSARY).movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("bad amount '" + rupees + "'");
+        }
+    }
+
+    // Formats paise as rupees with two decimals, e.g. 150025 -> "1500.25"
+    public static String format(long paise) {
+        StringBuilder sb = new StringBuilder(24);
+        append(sb, paise);
+        return sb.toString();
+    }
+
+    // Appends without creating intermediate strings, for the report paths
+    public static StringBuilder append(StringBuilder sb, long paise) {
+        if (paise < 0) {
+            sb.append('-');
+            paise = -paise;
+        }
+        long fraction = paise % PAISE_PER_RUPEE;
+        sb.append(paise / PAISE_PER_RUPEE).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+}
@@ -0,0 +1,143 @@
+package chitfund;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.table.AbstractTableModel;
+
+// Table model that reads a database table one page at a time as the JTable asks for
+// rows. Pages are fetched by rowid (keyset pagination) and kept in a small LRU cache;
+// the row count comes from COUNT(*), so opening a table costs the same at any size.
+public class PagedTableModel extends AbstractTableModel {
+    static final int DEFAULT_PAGE_SIZE = 200;
+    static final int DEFAULT_CACHED_PAGES = 16;
+
+    private final ConnectionManager connections;
+    private final String table;
+    private final int pageSize;
+    private final String[] columnNames;
+    private final int rowCount;
+    private final Map<Integer, Object[][]> pages;
+    // First rowid of each page seen so far, so neighbouring pages can be found by key
+    private final Map<Integer, Long> pageStartKeys = new HashMap<>();
+
+    public PagedTableModel(ConnectionManager connections, String table, int pageSize, int maxCachedPages)
+            throws SQLException {
+        this.connections = connections;
+        this.table = table;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<Integer, Object[][]>(maxCachedPages * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+                return size() > maxCachedPages;
+            }
+        };
+
+        columnNames = connections.read(c -> {
+            try (ResultSet rs = c.prepare("SELECT * FROM " + table + " LIMIT 0").executeQuery()) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                String[] names = new String[metaData.getColumnCount()];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = metaData.getColumnName(i + 1);
+                }
+                return names;
+            }
+        });
+        rowCount = connections.read(c -> {
+            try (ResultSet rs = c.prepare("SELECT COUNT(*) FROM " + table).executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+        pageStartKeys.put(0, Long.MIN_VALUE);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Object[][] rows = getPage(rowIndex / pageSize);
+        int offset = rowIndex % pageSize;
+        return offset < rows.length ? rows[offset][columnIndex] : null;
+    }
+
+    private Object[][] getPage(int pageIndex) {
+        Object[][] rows = pages.get(pageIndex);
+        if (rows == null) {
+            try {
+                rows = fetchPage(pageIndex);
+                pages.put(pageIndex, rows);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return new Object[0][];
+            }
+        }
+        return rows;
+    }
+
+    private Object[][] fetchPage(int pageIndex) throws SQLException {
+        Long startKey = pageStartKeys.get(pageIndex);
+        if (startKey == null) {
+            // Jumped past the pages seen so far: locate the page start on the rowid index
+            startKey = seekKey((long) pageIndex * pageSize);
+            if (startKey == null) {
+                return new Object[0][];
+            }
+            pageStartKeys.put(pageIndex, startKey);
+        }
+
+        long firstKey = startKey;
+        List<Object[]> rows = new ArrayList<>(pageSize);
+        connections.read(c -> {
+            PreparedStatement pstmt = c.prepare(
+                    "SELECT rowid, * FROM " + table + " WHERE rowid >= ? ORDER BY rowid LIMIT ?");
+            pstmt.setLong(1, firstKey);
+            // One extra row tells us where the next page starts
+            pstmt.setInt(2, pageSize + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (rows.size() == pageSize) {
+                        pageStartKeys.put(pageIndex + 1, rs.getLong(1));
+                        break;
+                    }
+                    Object[] row = new Object[columnNames.length];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = rs.getObject(i + 2);
+                    }
+                    rows.add(row);
+                }
+            }
+            return null;
+        });
+        return rows.toArray(new Object[0][]);
+    }
+
+    private Long seekKey(long rowOffset) throws SQLException {
+        return connections.read(c -> {
+            PreparedStatement pstmt = c.prepare("SELECT rowid FROM " + table + " ORDER BY rowid LIMIT 1 OFFSET ?");
+            pstmt.setLong(1, rowOffset);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        });
+    }
+}
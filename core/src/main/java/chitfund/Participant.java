@@ -0,0 +1,35 @@
+package chitfund;
+
+public class Participant {
+    private String participantId;
+    private long amountReceived;
+    public String name;
+
+    public Participant(String participantId, String name) {
+        this.participantId = participantId;
+        this.name = name;
+        this.amountReceived = 0;
+    }
+
+    public String getParticipantId() {
+        return participantId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Total paid out to this participant, in paise. A member of several funds can be
+    // paid by settlements running on different threads.
+    public synchronized long getAmountReceived() {
+        return amountReceived;
+    }
+
+    public synchronized void receiveAmount(long amount) {
+        this.amountReceived += amount;
+    }
+
+    public void makeBid(ChitFundSystem chitFund, long bidAmount) {
+        chitFund.addBid(this, bidAmount);
+    }
+}
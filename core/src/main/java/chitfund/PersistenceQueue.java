@@ -0,0 +1,262 @@
+package chitfund;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+// Write-behind persistence: the UI hands writes to a bounded queue and a dedicated
+// writer thread applies them on the writer connection. In GROUP_COMMIT mode pending
+// writes are grouped into JDBC batches inside one transaction, committed once the
+// batch is full or the oldest write has waited maxDelayMillis. In SYNC mode every
+// submitted unit is committed on its own. A full queue blocks the submitter.
+public class PersistenceQueue implements AutoCloseable {
+    enum DurabilityMode { SYNC, GROUP_COMMIT }
+
+    interface Callback {
+        // error is null when the writes were committed
+        void onComplete(SQLException error);
+    }
+
+    // Work that needs the writer connection itself rather than a fixed list of writes.
+    // It runs on the writer thread inside the current transaction, in submission order,
+    // and may run again if the transaction is retried.
+    interface Task {
+        void run(CachedConnection connection) throws SQLException;
+    }
+
+    static final class Write {
+        final String sql;
+        final Object[] params;
+
+        Write(String sql, Object[] params) {
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+
+    // Writes submitted together are always committed together
+    private static final class Unit {
+        final Write[] writes;
+        final Task task;
+        final Callback callback;
+        final CountDownLatch flushed;
+
+        Unit(Write[] writes, Task task, Callback callback, CountDownLatch flushed) {
+            this.writes = writes;
+            this.task = task;
+            this.callback = callback;
+            this.flushed = flushed;
+        }
+    }
+
+    private final CachedConnection writeConnection;
+    private final Connection connection;
+    private final DurabilityMode mode;
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final Executor callbackExecutor;
+    private final BlockingQueue<Unit> queue;
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile int failedUnits;
+    private final Metrics.Operation submitMetrics = Metrics.get().operation("queue.submit");
+    private final Metrics.Operation commitMetrics = Metrics.get().operation("queue.commit");
+
+    public PersistenceQueue(CachedConnection writeConnection, DurabilityMode mode, int capacity,
+                            int maxBatchSize, long maxDelayMillis, Executor callbackExecutor) {
+        this.writeConnection = writeConnection;
+        this.connection = writeConnection.getConnection();
+        this.mode = mode;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMillis = maxDelayMillis;
+        this.callbackExecutor = callbackExecutor;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::runWriter, "chitfund-db-writer");
+        this.writer.start();
+    }
+
+    static Write write(String sql, Object... params) {
+        return new Write(sql, params);
+    }
+
+    public void submit(Callback callback, Write... writes) {
+        enqueue(new Unit(writes, null, callback, null));
+    }
+
+    public void submit(Callback callback, Task task) {
+        enqueue(new Unit(new Write[0], task, callback, null));
+    }
+
+    // Blocks until everything submitted so far has been committed
+    public void flush() {
+        CountDownLatch latch = new CountDownLatch(1);
+        enqueue(new Unit(new Write[0], null, null, latch));
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    // Units whose writes were rolled back; the in-memory model is ahead of the database
+    // for each of them
+    public int getFailedCount() {
+        return failedUnits;
+    }
+
+    // Commits all pending writes and stops the writer thread
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Unit unit) {
+        if (closed) {
+            throw new IllegalStateException("Persistence queue is closed");
+        }
+        // Time spent here is back-pressure from a full queue
+        long start = Metrics.start();
+        try {
+            queue.put(unit);
+            submitMetrics.record(start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the persistence queue", e);
+        }
+    }
+
+    private void runWriter() {
+        List<Unit> batch = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Unit first = queue.take();
+                batch.add(first);
+                if (mode == DurabilityMode.GROUP_COMMIT && first.flushed == null) {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+                    while (batch.size() < maxBatchSize) {
+                        Unit next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                        if (next.flushed != null) {
+                            break;
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                // close() interrupts the writer once the queue has been flushed
+                queue.drainTo(batch);
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Unit> batch) {
+        long start = Metrics.start();
+        try {
+            execute(batch);
+            commitMetrics.record(start);
+            complete(batch, null);
+        } catch (SQLException | RuntimeException e) {
+            commitMetrics.recordError(start);
+            // Retry one unit at a time so a single bad write doesn't fail its neighbours
+            for (Unit unit : batch) {
+                List<Unit> single = Collections.singletonList(unit);
+                long unitStart = Metrics.start();
+                try {
+                    execute(single);
+                    commitMetrics.record(unitStart);
+                    complete(single, null);
+                } catch (SQLException unitError) {
+                    commitMetrics.recordError(unitStart);
+                    complete(single, unitError);
+                } catch (RuntimeException unitError) {
+                    // A failing task or an unbindable parameter fails its unit like a
+                    // database error, and the writer carries on
+                    commitMetrics.recordError(unitStart);
+                    complete(single, new SQLException("Write failed: " + unitError, unitError));
+                }
+            }
+        }
+    }
+
+    // Runs the writes in submission order; consecutive writes with the same SQL share
+    // one JDBC batch
+    private void execute(List<Unit> batch) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            PreparedStatement pending = null;
+            for (Unit unit : batch) {
+                if (unit.task != null) {
+                    if (pending != null) {
+                        pending.executeBatch();
+                        pending = null;
+                    }
+                    unit.task.run(writeConnection);
+                }
+                for (Write write : unit.writes) {
+                    PreparedStatement pstmt = writeConnection.prepare(write.sql);
+                    if (pending != null && pending != pstmt) {
+                        pending.executeBatch();
+                    }
+                    for (int i = 0; i < write.params.length; i++) {
+                        pstmt.setObject(i + 1, write.params[i]);
+                    }
+                    pstmt.addBatch();
+                    pending = pstmt;
+                }
+            }
+            if (pending != null) {
+                pending.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            writeConnection.clearBatches();
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void complete(List<Unit> units, SQLException error) {
+        if (error != null) {
+            failedUnits += units.size();
+        }
+        for (Unit unit : units) {
+            if (unit.flushed != null) {
+                unit.flushed.countDown();
+            }
+            if (unit.callback != null) {
+                Callback callback = unit.callback;
+                callbackExecutor.execute(() -> callback.onComplete(error));
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package chitfund;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Case-insensitive prefix search over string keys, for autocomplete. Keys are held in
+// a sorted array, so the keys starting with a prefix are one contiguous run found by
+// binary search. New keys go to a pending buffer instead of shifting the array; the
+// buffer is searched alongside it and merged in once it holds more than MAX_PENDING
+// keys or when the index is compacted. Keys added one at a time are inserted into the
+// buffer in order; past MAX_PENDING they are appended and sorted once, so loading a
+// million keys costs one sort rather than a million insertions. The keys are the
+// callers' own strings, so the index adds two references per key.
+//
+// Adds come from the thread that builds the model, queries from a search thread;
+// every method is synchronized.
+public class PrefixIndex<T> {
+    static final int MAX_PENDING = 4096;
+
+    private static final Comparator<String> ORDER = String.CASE_INSENSITIVE_ORDER;
+
+    private String[] keys = new String[0];
+    private Object[] values = new Object[0];
+    private final List<Entry<T>> pending = new ArrayList<>();
+    private boolean pendingSorted = true;
+
+    public synchronized void add(String key, T value) {
+        if (key == null || key.isEmpty()) {
+            return;
+        }
+        Entry<T> entry = new Entry<>(key, value);
+        if (pendingSorted && pending.size() < MAX_PENDING) {
+            // One at a time, as the UI adds them: keep the buffer sorted
+            pending.add(pendingLowerBound(key), entry);
+        } else {
+            // In bulk: sort once when next queried or compacted
+            pending.add(entry);
+            pendingSorted = false;
+        }
+    }
+
+    public synchronized int size() {
+        return keys.length + pending.size();
+    }
+
+    // Merges pending keys into the sorted array, e.g. once loading is done so the
+    // first query doesn't pay for it
+    public synchronized void compact() {
+        sortPending();
+        if (pending.isEmpty()) {
+            return;
+        }
+        String[] mergedKeys = new String[keys.length + pending.size()];
+        Object[] mergedValues = new Object[mergedKeys.length];
+        // Copies the runs of sorted keys between pending ones in blocks; a merge costs
+        // one copy of the array plus a binary search per pending key
+        int from = 0;
+        int out = 0;
+        for (Entry<T> entry : pending) {
+            int to = upperBound(entry.key, from);
+            System.arraycopy(keys, from, mergedKeys, out, to - from);
+            System.arraycopy(values, from, mergedValues, out, to - from);
+            out += to - from;
+            mergedKeys[out] = entry.key;
+            mergedValues[out++] = entry.value;
+            from = to;
+        }
+        System.arraycopy(keys, from, mergedKeys, out, keys.length - from);
+        System.arraycopy(values, from, mergedValues, out, keys.length - from);
+        keys = mergedKeys;
+        values = mergedValues;
+        pending.clear();
+    }
+
+    // Up to limit distinct values with a key starting with prefix, ignoring case, in
+    // key order. A value indexed under several matching keys is returned once.
+    public synchronized List<T> complete(String prefix, int limit) {
+        if (pending.size() > MAX_PENDING) {
+            compact();
+        } else {
+            sortPending();
+        }
+        Set<T> matches = new LinkedHashSet<>();
+        int i = lowerBound(prefix);
+        int p = pendingLowerBound(prefix);
+        while (matches.size() < limit) {
+            boolean inKeys = i < keys.length && startsWith(keys[i], prefix);
+            boolean inPending = p < pending.size() && startsWith(pending.get(p).key, prefix);
+            if (!inKeys && !inPending) {
+                break;
+            }
+            if (inKeys && (!inPending || ORDER.compare(keys[i], pending.get(p).key) <= 0)) {
+                matches.add(valueAt(i++));
+            } else {
+                matches.add(pending.get(p++).value);
+            }
+        }
+        return new ArrayList<>(matches);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T valueAt(int i) {
+        return (T) values[i];
+    }
+
+    private void sortPending() {
+        if (!pendingSorted) {
+            pending.sort((a, b) -> ORDER.compare(a.key, b.key));
+            pendingSorted = true;
+        }
+    }
+
+    // First position whose key is not below prefix; the matches start there
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ORDER.compare(keys[mid], prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First position at or after from whose key sorts after key
+    private int upperBound(String key, int from) {
+        int low = from;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ORDER.compare(keys[mid], key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int pendingLowerBound(String prefix) {
+        int low = 0;
+        int high = pending.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ORDER.compare(pending.get(mid).key, prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean startsWith(String key, String prefix) {
+        return key.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    private static final class Entry<T> {
+        final String key;
+        final T value;
+
+        Entry(String key, T value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
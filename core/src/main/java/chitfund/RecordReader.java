@@ -0,0 +1,253 @@
+package chitfund;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+// Reads flat records one line at a time from a CSV file (first line is the header)
+// or a JSON Lines file (one flat object per line). The same map is reused for every
+// record, so callers must copy anything they keep.
+public abstract class RecordReader implements Closeable {
+    protected final BufferedReader reader;
+    protected final Map<String, String> record = new HashMap<>();
+    protected long lineNumber;
+
+    protected RecordReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    // A .gz suffix, as on compressed exports, is read through gunzip
+    public static RecordReader open(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        BufferedReader reader;
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+            reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(file), 64 * 1024), StandardCharsets.UTF_8));
+        } else {
+            reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        }
+        if (name.endsWith(".jsonl") || name.endsWith(".json") || name.endsWith(".ndjson")) {
+            return new JsonLines(reader);
+        }
+        return new Csv(reader);
+    }
+
+    // Returns the next record, or null at end of file
+    public abstract Map<String, String> next() throws IOException;
+
+    // Line number of the record last returned
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    protected String nextNonBlankLine() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+        } while (line != null && line.isBlank());
+        return line;
+    }
+
+    static class Csv extends RecordReader {
+        private String[] header;
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+
+        Csv(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            if (header == null) {
+                String line = nextNonBlankLine();
+                if (line == null) {
+                    return null;
+                }
+                split(line);
+                header = new String[fields.size()];
+                for (int i = 0; i < header.length; i++) {
+                    header[i] = fields.get(i).trim();
+                }
+            }
+            String line = nextNonBlankLine();
+            if (line == null) {
+                return null;
+            }
+            split(line);
+            record.clear();
+            for (int i = 0; i < header.length && i < fields.size(); i++) {
+                record.put(header[i], fields.get(i));
+            }
+            return record;
+        }
+
+        // RFC 4180 fields on a single line: commas separate, double quotes enclose,
+        // and "" inside quotes is a literal quote
+        private void split(String line) throws IOException {
+            fields.clear();
+            field.setLength(0);
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                throw new IOException("Unterminated quoted field on line " + lineNumber);
+            }
+            fields.add(field.toString());
+        }
+    }
+
+    static class JsonLines extends RecordReader {
+        private final StringBuilder text = new StringBuilder();
+        private String line;
+        private int pos;
+
+        JsonLines(BufferedReader reader) {
+            super(reader);
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            line = nextNonBlankLine();
+            if (line == null) {
+                return null;
+            }
+            pos = 0;
+            record.clear();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                return record;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = readString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                record.put(key, readValue());
+                skipWhitespace();
+                char c = read();
+                if (c == '}') {
+                    return record;
+                }
+                if (c != ',') {
+                    throw error("expected ',' or '}'");
+                }
+            }
+        }
+
+        // Scalars only: strings, numbers, booleans and null (stored as a missing key)
+        private String readValue() throws IOException {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            int start = pos;
+            while (pos < line.length() && ",} \t".indexOf(line.charAt(pos)) < 0) {
+                pos++;
+            }
+            String value = line.substring(start, pos);
+            if (value.isEmpty() || c == '{' || c == '[') {
+                throw error("expected a scalar value");
+            }
+            return value.equals("null") ? null : value;
+        }
+
+        private String readString() throws IOException {
+            expect('"');
+            text.setLength(0);
+            while (true) {
+                char c = read();
+                if (c == '"') {
+                    return text.toString();
+                }
+                if (c != '\\') {
+                    text.append(c);
+                    continue;
+                }
+                char escaped = read();
+                switch (escaped) {
+                    case 'n': text.append('\n'); break;
+                    case 't': text.append('\t'); break;
+                    case 'r': text.append('\r'); break;
+                    case 'b': text.append('\b'); break;
+                    case 'f': text.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > line.length()) {
+                            throw error("bad unicode escape");
+                        }
+                        text.append((char) Integer.parseInt(line.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default: text.append(escaped);
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() throws IOException {
+            if (pos >= line.length()) {
+                throw error("unexpected end of line");
+            }
+            return line.charAt(pos);
+        }
+
+        private char read() throws IOException {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char expected) throws IOException {
+            if (read() != expected) {
+                throw error("expected '" + expected + "'");
+            }
+        }
+
+        private IOException error(String message) {
+            return new IOException("Malformed JSON on line " + lineNumber + " at column " + (pos + 1) + ": " + message);
+        }
+    }
+}
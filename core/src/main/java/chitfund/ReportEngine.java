@@ -0,0 +1,119 @@
+package chitfund;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+// Builds the Display Information report from a single ordered query. For every fund
+// the query yields its member rows (kind 0) followed by its bid rows (kind 1), so the
+// report is rendered in one pass. Text is collected in one reusable buffer and handed
+// to the sink a page at a time.
+public class ReportEngine {
+    public static final int DEFAULT_PAGE_LINES = 500;
+
+    private static final String REPORT_QUERY =
+            "SELECT f.rowid AS fundSeq, f.id, f.totalAmountPaise, f.numberOfMonths, 0 AS kind, p.rowid AS seq, " +
+            "p.id AS participantId, p.name, NULL AS bidAmountPaise " +
+            "FROM ChitFund f " +
+            "LEFT JOIN ChitFundParticipant m ON m.chitFundId = f.id " +
+            "LEFT JOIN Participant p ON p.id = m.participantId " +
+            "UNION ALL " +
+            "SELECT f.rowid, f.id, f.totalAmountPaise, f.numberOfMonths, 1, b.id, " +
+            "b.participantId, p.name, b.bidAmountPaise " +
+            "FROM ChitFund f " +
+            "JOIN Bid b ON b.chitFundId = f.id " +
+            "LEFT JOIN Participant p ON p.id = b.participantId " +
+            "ORDER BY fundSeq, kind, seq";
+
+    private final Connection connection;
+    private final int pageLines;
+    private final StringBuilder page = new StringBuilder(8192);
+    private int linesInPage;
+
+    public ReportEngine(Connection connection, int pageLines) {
+        this.connection = connection;
+        this.pageLines = pageLines;
+    }
+
+    // Renders the report into pages; returns the number of funds rendered, or -1 if
+    // the run was cancelled
+    public int render(Consumer<String> pageSink, BooleanSupplier cancelled) throws SQLException {
+        page.setLength(0);
+        linesInPage = 0;
+        int funds = 0;
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(pageLines);
+            try (ResultSet rs = stmt.executeQuery(REPORT_QUERY)) {
+                String currentFund = null;
+                boolean inBids = false;
+                while (rs.next()) {
+                    if (cancelled.getAsBoolean()) {
+                        return -1;
+                    }
+                    String chitFundId = rs.getString(2);
+                    int kind = rs.getInt(5);
+                    if (!chitFundId.equals(currentFund)) {
+                        if (currentFund != null) {
+                            endFund(inBids, pageSink);
+                        }
+                        currentFund = chitFundId;
+                        inBids = false;
+                        funds++;
+                        line(pageSink, "Chit Fund ID: ", chitFundId);
+                        line(pageSink, "Total Amount: ", Money.format(rs.getLong(3)));
+                        line(pageSink, "Number of Months: ", rs.getInt(4));
+                        line(pageSink, "Participants:", "");
+                    }
+                    String participantId = rs.getString(7);
+                    String name = rs.getString(8);
+                    if (kind == 0) {
+                        if (participantId != null) {
+                            page.append("  ").append(name).append(" (ID: ").append(participantId).append(")\n");
+                            lineAdded(pageSink);
+                        }
+                    } else {
+                        if (!inBids) {
+                            line(pageSink, "Bids:", "");
+                            inBids = true;
+                        }
+                        page.append("  ").append(name != null ? name : participantId).append(" bid: ");
+                        Money.append(page, rs.getLong(9)).append('\n');
+                        lineAdded(pageSink);
+                    }
+                }
+                if (currentFund == null) {
+                    line(pageSink, "No chit funds available", "");
+                } else {
+                    endFund(inBids, pageSink);
+                }
+            }
+        }
+        if (page.length() > 0) {
+            pageSink.accept(page.toString());
+        }
+        return funds;
+    }
+
+    private void endFund(boolean inBids, Consumer<String> pageSink) {
+        if (!inBids) {
+            line(pageSink, "Bids:", "");
+        }
+        line(pageSink, "", "");
+    }
+
+    private void line(Consumer<String> pageSink, String label, Object value) {
+        page.append(label).append(value).append('\n');
+        lineAdded(pageSink);
+    }
+
+    private void lineAdded(Consumer<String> pageSink) {
+        if (++linesInPage >= pageLines) {
+            pageSink.accept(page.toString());
+            page.setLength(0);
+            linesInPage = 0;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package chitfund;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Versioned schema for chitfund.db. The version is kept in SQLite's user_version
+// pragma; each step upgrades the schema from the previous version and all pending
+// steps run in a single transaction.
+public class SchemaMigrations {
+    static final int CURRENT_VERSION = 10;
+    // Participants named in upgrade messages
+    static final int MAX_LISTED = 20;
+
+    public static int migrate(Connection connection) throws SQLException {
+        int version = readVersion(connection);
+        if (version >= CURRENT_VERSION) {
+            return version;
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            if (version < 1) {
+                createBaseTables(stmt);
+            }
+            if (version < 2) {
+                addMembershipTable(stmt);
+            }
+            if (version < 3) {
+                addAuctionMonths(stmt);
+            }
+            if (version < 4) {
+                addBidImportKeys(stmt);
+            }
+            if (version < 5) {
+                addSettlementTable(stmt);
+            }
+            if (version < 6) {
+                convertMoneyToPaise(stmt);
+            }
+            if (version < 7) {
+                addEventLogProjection(stmt);
+            }
+            if (version < 8) {
+                addFundStats(stmt);
+            }
+            if (version < 9) {
+                addArchiveTables(stmt);
+            }
+            if (version < 10) {
+                addDuesTables(stmt);
+            }
+            stmt.execute("PRAGMA user_version = " + CURRENT_VERSION);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        System.out.println("Database schema upgraded from version " + version + " to " + CURRENT_VERSION);
+        return CURRENT_VERSION;
+    }
+
+    static int readVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // Version 1: the original tables. Databases created before versioning already
+    // have them, hence IF NOT EXISTS.
+    private static void createBaseTables(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS ChitFund (" +
+                "id TEXT PRIMARY KEY, " +
+                "totalAmount REAL, " +
+                "numberOfMonths INTEGER)");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS Participant (" +
+                "id TEXT PRIMARY KEY, " +
+                "name TEXT, " +
+                "amountReceived REAL)");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS Bid (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "chitFundId TEXT, " +
+                "participantId TEXT, " +
+                "bidAmount REAL, " +
+                "FOREIGN KEY(chitFundId) REFERENCES ChitFund(id), " +
+                "FOREIGN KEY(participantId) REFERENCES Participant(id))");
+    }
+
+    // Version 2: fund membership table and Bid indexes.
+    private static void addMembershipTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS ChitFundParticipant (" +
+                "chitFundId TEXT NOT NULL, " +
+                "participantId TEXT NOT NULL, " +
+                "PRIMARY KEY (chitFundId, participantId), " +
+                "FOREIGN KEY(chitFundId) REFERENCES ChitFund(id), " +
+                "FOREIGN KEY(participantId) REFERENCES Participant(id)) WITHOUT ROWID");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_ChitFundParticipant_participant " +
+                "ON ChitFundParticipant(participantId)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_Bid_chitFundId ON Bid(chitFundId)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_Bid_participantId ON Bid(participantId)");
+
+        // Older databases never recorded which fund a participant joined. Anyone who
+        // bid in a fund is a member of it; bids are the only record of membership at
+        // this version (payments and settlements come later). Participants without
+        // bids are left out of every fund and listed, so they can be added to the
+        // right fund with Add Participant.
+        stmt.execute("INSERT OR IGNORE INTO ChitFundParticipant (chitFundId, participantId) " +
+                "SELECT DISTINCT b.chitFundId, b.participantId FROM Bid b " +
+                "JOIN ChitFund f ON f.id = b.chitFundId " +
+                "JOIN Participant p ON p.id = b.participantId");
+        List<String> unattached = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery("SELECT id FROM Participant p " +
+                "WHERE NOT EXISTS (SELECT 1 FROM ChitFundParticipant m WHERE m.participantId = p.id) ORDER BY id")) {
+            while (rs.next()) {
+                unattached.add(rs.getString(1));
+            }
+        }
+        if (!unattached.isEmpty()) {
+            List<String> listed = unattached.subList(0, Math.min(MAX_LISTED, unattached.size()));
+            System.out.println("Not in any chit fund (no bids to show which): " + String.join(", ", listed) +
+                    (unattached.size() > listed.size() ? " and " + (unattached.size() - listed.size()) + " more" : ""));
+        }
+    }
+
+    // Version 3: auction month tracking. Existing funds and bids belong to month 1.
+    private static void addAuctionMonths(Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE ChitFund ADD COLUMN currentMonth INTEGER NOT NULL DEFAULT 1");
+        stmt.execute("ALTER TABLE Bid ADD COLUMN auctionMonth INTEGER NOT NULL DEFAULT 1");
+    }
+
+    // Version 4: a unique key for imported bids so re-running an import skips rows that
+    // are already in. Bids entered through the UI leave it NULL.
+    private static void addBidImportKeys(Statement stmt) throws SQLException {
+        stmt.execute("ALTER TABLE Bid ADD COLUMN importKey TEXT");
+        stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_Bid_importKey ON Bid(importKey)");
+    }
+
+    // Version 5: one row per settled auction month
+    private static void addSettlementTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS Settlement (" +
+                "chitFundId TEXT NOT NULL, " +
+                "month INTEGER NOT NULL, " +
+                "participantId TEXT NOT NULL, " +
+                "amount REAL, " +
+                "dividendPerMember REAL, " +
+                "settledAt TEXT, " +
+                "PRIMARY KEY (chitFundId, month), " +
+                "FOREIGN KEY(chitFundId) REFERENCES ChitFund(id), " +
+                "FOREIGN KEY(participantId) REFERENCES Participant(id))");
+    }
+
+    // Version 6: money as whole paise in INTEGER columns instead of REAL rupees. Each
+    // REAL column is replaced by a *Paise column holding the rounded value. Dropping
+    // columns needs SQLite 3.35 or later.
+    private static void convertMoneyToPaise(Statement stmt) throws SQLException {
+        convertColumn(stmt, "ChitFund", "totalAmount", "totalAmountPaise");
+        convertColumn(stmt, "Participant", "amountReceived", "amountReceivedPaise");
+        convertColumn(stmt, "Bid", "bidAmount", "bidAmountPaise");
+        convertColumn(stmt, "Settlement", "amount", "amountPaise");
+        convertColumn(stmt, "Settlement", "dividendPerMember", "dividendPerMemberPaise");
+    }
+
+    private static void convertColumn(Statement stmt, String table, String rupees, String paise)
+            throws SQLException {
+        stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + paise + " INTEGER NOT NULL DEFAULT 0");
+        stmt.execute("UPDATE " + table + " SET " + paise + " = CAST(ROUND(COALESCE(" + rupees + ", 0) * 100) AS INTEGER)");
+        stmt.execute("ALTER TABLE " + table + " DROP COLUMN " + rupees);
+    }
+
+    // Version 7: how far the bid event log has been applied to the tables. A single
+    // row; 0 means nothing has been projected yet.
+    private static void addEventLogProjection(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS EventLogProjection (" +
+                "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+                "sequence INTEGER NOT NULL)");
+        stmt.execute("INSERT OR IGNORE INTO EventLogProjection (id, sequence) VALUES (1, 0)");
+    }
+
+    // Version 8: running totals per fund, kept by triggers and filled in from the
+    // existing rows.
+    private static void addFundStats(Statement stmt) throws SQLException {
+        FundStatsTable.createTable(stmt);
+        FundStatsTable.rebuild(stmt);
+    }
+
+    // Version 9: archive tables for completed funds, and views over live and archived
+    // rows together.
+    private static void addArchiveTables(Statement stmt) throws SQLException {
+        FundArchive.createTables(stmt);
+    }
+
+    // Version 10: payments, the installment schedule and the dues ledger, with their
+    // archive tables. The schedule and ledger are filled in by the next month-end run.
+    private static void addDuesTables(Statement stmt) throws SQLException {
+        InstallmentEngine.createTables(stmt);
+    }
+}
@@ -0,0 +1,55 @@
+package chitfund;
+
+import java.time.Instant;
+
+// Outcome of one month's auction in a chit fund
+public class SettlementResult {
+    private final ChitFundSystem chitFund;
+    private final int month;
+    private final Participant winner;
+    private final long amount;
+    private final long dividendPerMember;
+    private final Instant settledAt;
+
+    public SettlementResult(ChitFundSystem chitFund, int month, Participant winner, long amount,
+                            long dividendPerMember, Instant settledAt) {
+        this.chitFund = chitFund;
+        this.month = month;
+        this.winner = winner;
+        this.amount = amount;
+        this.dividendPerMember = dividendPerMember;
+        this.settledAt = settledAt;
+    }
+
+    public ChitFundSystem getChitFund() {
+        return chitFund;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    public Participant getWinner() {
+        return winner;
+    }
+
+    // Amounts are in paise
+    public long getAmount() {
+        return amount;
+    }
+
+    public long getDividendPerMember() {
+        return dividendPerMember;
+    }
+
+    public Instant getSettledAt() {
+        return settledAt;
+    }
+
+    @Override
+    public String toString() {
+        return "Chit fund " + chitFund.getChitFundId() + " month " + month + ": " + Money.format(amount) +
+                " distributed to " + winner.getName() + " (" + winner.getParticipantId() + "), dividend " +
+                Money.format(dividendPerMember) + " per member, at " + settledAt;
+    }
+}
@@ -0,0 +1,119 @@
+package chitfund;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Month-end settlement of every due fund. Winners and dividends are computed in
+// parallel on a ForkJoinPool, each fund independently; payouts are then applied in
+// fund order on the calling thread. Members can belong to several funds, so applying
+// in a fixed order keeps every balance identical whatever the parallelism.
+public class SettlementScheduler {
+    // Funds per fork/join leaf task
+    static final int LEAF_SIZE = 256;
+
+    private final int parallelism;
+
+    public SettlementScheduler(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public RunReport run(ChitFundManagementSystem system) {
+        long start = System.nanoTime();
+        List<ChitFundSystem> due = new ArrayList<>();
+        for (ChitFundSystem chitFund : system.getChitFunds()) {
+            if (chitFund.isAuctionDue()) {
+                due.add(chitFund);
+            }
+        }
+
+        // One timestamp per run, so output doesn't depend on scheduling either
+        Instant settledAt = Instant.now();
+        SettlementResult[] results = new SettlementResult[due.size()];
+        long computeStart = System.nanoTime();
+        if (parallelism == 1 || due.size() <= LEAF_SIZE) {
+            new ComputeTask(due, results, settledAt, 0, due.size()).compute();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(new ComputeTask(due, results, settledAt, 0, due.size()));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        long applyStart = System.nanoTime();
+
+        for (SettlementResult result : results) {
+            result.getChitFund().applySettlement(result);
+        }
+        long end = System.nanoTime();
+        return new RunReport(Arrays.asList(results), parallelism,
+                applyStart - computeStart, end - applyStart, end - start);
+    }
+
+    private static final class ComputeTask extends RecursiveAction {
+        private final List<ChitFundSystem> funds;
+        private final SettlementResult[] results;
+        private final Instant settledAt;
+        private final int from;
+        private final int to;
+
+        ComputeTask(List<ChitFundSystem> funds, SettlementResult[] results, Instant settledAt, int from, int to) {
+            this.funds = funds;
+            this.results = results;
+            this.settledAt = settledAt;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    results[i] = funds.get(i).computeSettlement(settledAt);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ComputeTask(funds, results, settledAt, from, mid),
+                    new ComputeTask(funds, results, settledAt, mid, to));
+        }
+    }
+
+    public static class RunReport {
+        private final List<SettlementResult> results;
+        private final int parallelism;
+        private final long computeNanos;
+        private final long applyNanos;
+        private final long totalNanos;
+
+        RunReport(List<SettlementResult> results, int parallelism, long computeNanos, long applyNanos, long totalNanos) {
+            this.results = Collections.unmodifiableList(results);
+            this.parallelism = parallelism;
+            this.computeNanos = computeNanos;
+            this.applyNanos = applyNanos;
+            this.totalNanos = totalNanos;
+        }
+
+        // Settlements in fund order
+        public List<SettlementResult> getResults() {
+            return results;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        @Override
+        public String toString() {
+            long fundsPerSecond = totalNanos > 0 ? results.size() * 1_000_000_000L / totalNanos : 0;
+            return "Settled " + results.size() + " chit funds with parallelism " + parallelism + " in " +
+                    totalNanos / 1_000_000 + " ms (compute " + computeNanos / 1_000_000 + " ms, apply " +
+                    applyNanos / 1_000_000 + " ms, " + fundsPerSecond + " funds/s)";
+        }
+    }
+}
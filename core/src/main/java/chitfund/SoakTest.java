@@ -0,0 +1,486 @@
+package chitfund;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Drives a mixed workload against a generated database for a fixed time, through the
+// code paths the UI uses: the model is loaded with ChitFundLoader, bids go through a
+// BidDesk whose journal queues them on a PersistenceQueue, settlements are made under
+// the fund's lock and queued with the same writes as Conduct Bidding, and the Display
+// Information report and the dashboard totals are read while that goes on. Bidders
+// and settlements pick funds with the generator's popularity skew.
+//
+// The report has throughput, latency percentiles, heap and GC use and how much the
+// database file grew, and checks them against thresholds (chitfund.soak.*). It also
+// checks that every bid and settlement reached the database and that FundStats
+// agrees with the raw rows.
+public class SoakTest {
+    public static final class Config {
+        int durationSeconds = 60;
+        int bidders = 4;
+        // Target bid rate across all bidders; 0 bids as fast as possible
+        int bidsPerSecond = 2000;
+        int settlementsPerSecond = 5;
+        int reportIntervalSeconds = 15;
+        int progressIntervalSeconds = 10;
+        double skew = 1.1;
+        // Thresholds
+        double minBidsPerSecond = -1;
+        double maxBidP99Millis = 50;
+        double maxSettleP99Millis = 100;
+        double maxReportP99Millis = 10_000;
+        double maxGcPercent = 10;
+        long maxHeapGrowthMiB = 256;
+        long maxBytesPerBid = 512;
+
+        public static Config fromSystemProperties() {
+            Config config = new Config();
+            config.durationSeconds = Integer.getInteger("chitfund.soak.durationSeconds", config.durationSeconds);
+            config.bidders = Integer.getInteger("chitfund.soak.bidders", config.bidders);
+            config.bidsPerSecond = Integer.getInteger("chitfund.soak.bidsPerSecond", config.bidsPerSecond);
+            config.settlementsPerSecond = Integer.getInteger("chitfund.soak.settlementsPerSecond",
+                    config.settlementsPerSecond);
+            config.reportIntervalSeconds = Integer.getInteger("chitfund.soak.reportIntervalSeconds",
+                    config.reportIntervalSeconds);
+            config.progressIntervalSeconds = Integer.getInteger("chitfund.soak.progressIntervalSeconds",
+                    config.progressIntervalSeconds);
+            config.skew = Double.parseDouble(System.getProperty("chitfund.workload.skew", String.valueOf(config.skew)));
+            // Unless given, 90% of the target rate has to be reached
+            config.minBidsPerSecond = Double.parseDouble(System.getProperty("chitfund.soak.minBidsPerSecond",
+                    String.valueOf(config.bidsPerSecond * 0.9)));
+            config.maxBidP99Millis = doubleProperty("chitfund.soak.maxBidP99Millis", config.maxBidP99Millis);
+            config.maxSettleP99Millis = doubleProperty("chitfund.soak.maxSettleP99Millis", config.maxSettleP99Millis);
+            config.maxReportP99Millis = doubleProperty("chitfund.soak.maxReportP99Millis", config.maxReportP99Millis);
+            config.maxGcPercent = doubleProperty("chitfund.soak.maxGcPercent", config.maxGcPercent);
+            config.maxHeapGrowthMiB = Long.getLong("chitfund.soak.maxHeapGrowthMiB", config.maxHeapGrowthMiB);
+            config.maxBytesPerBid = Long.getLong("chitfund.soak.maxBytesPerBid", config.maxBytesPerBid);
+            if (config.durationSeconds < 1 || config.bidders < 1 || config.bidsPerSecond < 0 ||
+                    config.settlementsPerSecond < 0 || config.reportIntervalSeconds < 1 ||
+                    config.progressIntervalSeconds < 1) {
+                throw new IllegalArgumentException("Soak test needs a duration, at least one bidder and " +
+                        "non-negative rates");
+            }
+            return config;
+        }
+
+        private static double doubleProperty(String name, double defaultValue) {
+            return Double.parseDouble(System.getProperty(name, String.valueOf(defaultValue)));
+        }
+    }
+
+    private final Config config;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private volatile boolean stopping;
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong peakHeap = new AtomicLong();
+
+    public SoakTest(Config config) {
+        this.config = config;
+    }
+
+    // Runs the workload against an existing database file. Database settings other than
+    // the file are the usual chitfund.db.* properties.
+    public SoakReport run(File database) throws Exception {
+        SoakReport report = new SoakReport();
+        report.config = config;
+        ConnectionManager.Config dbConfig = ConnectionManager.Config.fromSystemProperties();
+        dbConfig.url = "jdbc:sqlite:" + database.getAbsolutePath();
+        try (ConnectionManager connections = new ConnectionManager(dbConfig)) {
+            SchemaMigrations.migrate(connections.getWriter().getConnection());
+            checkpoint(connections);
+            report.bytesBefore = databaseBytes(database);
+            report.bidsBefore = count(connections, "SELECT COUNT(*) FROM Bid");
+            report.settlementsBefore = count(connections, "SELECT COUNT(*) FROM Settlement");
+
+            ChitFundManagementSystem system = new ChitFundManagementSystem();
+            report.load = connections.read(c -> new ChitFundLoader(c.getConnection(),
+                    Integer.getInteger("chitfund.load.fetchSize", ChitFundLoader.DEFAULT_FETCH_SIZE)).load(system));
+            System.out.println(report.load);
+
+            // Same queue settings as the UI; callbacks run on the writer thread
+            PersistenceQueue writeQueue = new PersistenceQueue(connections.getWriter(),
+                    PersistenceQueue.DurabilityMode.valueOf(
+                            System.getProperty("chitfund.persistence.mode", "GROUP_COMMIT")),
+                    Integer.getInteger("chitfund.persistence.queueCapacity", 10000),
+                    Integer.getInteger("chitfund.persistence.batchSize", 500),
+                    Long.getLong("chitfund.persistence.maxDelayMillis", 50L),
+                    Runnable::run);
+            PersistenceQueue.Callback countFailures = error -> {
+                if (error != null) {
+                    failedWrites.incrementAndGet();
+                }
+            };
+            BidDesk desk = new BidDesk(system, Integer.getInteger("chitfund.bidding.stripes", BidDesk.DEFAULT_STRIPES),
+                    (fund, participant, amountPaise, auctionMonth) -> writeQueue.submit(countFailures,
+                            AuctionEngine.bidWrite(fund, participant, amountPaise, auctionMonth)));
+
+            List<ChitFundSystem> funds = new ArrayList<>();
+            for (int f = 0; system.findFund(WorkloadGenerator.fundId(f)) != null; f++) {
+                funds.add(system.findFund(WorkloadGenerator.fundId(f)));
+            }
+            if (funds.isEmpty()) {
+                throw new IllegalArgumentException(database + " has no generated chit funds (F0, F1, ...)");
+            }
+            WorkloadGenerator.Zipf popularity = new WorkloadGenerator.Zipf(funds.size(), config.skew);
+            // Memberships don't change during the run; a few keen members place most bids
+            String[][] members = new String[funds.size()][];
+            for (int f = 0; f < funds.size(); f++) {
+                members[f] = funds.get(f).getParticipants().stream()
+                        .map(Participant::getParticipantId).toArray(String[]::new);
+            }
+
+            System.gc();
+            long heapBefore = memory.getHeapMemoryUsage().getUsed();
+            peakHeap.set(heapBefore);
+            long gcCountBefore = gcCount();
+            long gcMillisBefore = gcMillis();
+
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < config.bidders; t++) {
+                int seed = t;
+                threads.add(thread("chitfund-soak-bidder-" + t, () ->
+                        bid(desk, funds, members, popularity, new Random(seed), deadline, report)));
+            }
+            if (config.settlementsPerSecond > 0) {
+                threads.add(thread("chitfund-soak-settler", () ->
+                        settle(desk, funds, popularity, writeQueue, countFailures, deadline, report)));
+            }
+            threads.add(thread("chitfund-soak-reporter", () -> report(connections, writeQueue, deadline, report)));
+            for (Thread thread : threads) {
+                thread.start();
+            }
+
+            // Samples the heap once a second and prints progress now and then
+            long nextProgress = start + TimeUnit.SECONDS.toNanos(config.progressIntervalSeconds);
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(Math.max(1, Math.min(1000, (deadline - System.nanoTime()) / 1_000_000)));
+                sampleHeap();
+                if (System.nanoTime() >= nextProgress) {
+                    nextProgress += TimeUnit.SECONDS.toNanos(config.progressIntervalSeconds);
+                    System.out.printf("  %4d s: %,d bids, %,d settlements, %d reports, %d queued, heap %d MiB, " +
+                                    "database %d MiB%n", (System.nanoTime() - start) / 1_000_000_000,
+                            report.bidLatency.getCount(), report.settled,
+                            report.reportLatency.getCount() + report.dashboardLatency.getCount(),
+                            writeQueue.getPendingCount(), memory.getHeapMemoryUsage().getUsed() >> 20,
+                            databaseBytes(database) >> 20);
+                }
+            }
+            stopping = true;
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            report.elapsedNanos = System.nanoTime() - start;
+            writeQueue.flush();
+            report.failedWrites = failedWrites.get();
+            writeQueue.close();
+
+            report.gcCount = gcCount() - gcCountBefore;
+            report.gcMillis = gcMillis() - gcMillisBefore;
+            report.heapPeak = peakHeap.get();
+            System.gc();
+            report.heapBefore = heapBefore;
+            report.heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+            checkpoint(connections);
+            report.bytesAfter = databaseBytes(database);
+            report.bidsAfter = count(connections, "SELECT COUNT(*) FROM Bid");
+            report.settlementsAfter = count(connections, "SELECT COUNT(*) FROM Settlement");
+            report.verify = connections.read(c -> FundStatsTable.verify(c.getConnection()));
+        }
+        return report;
+    }
+
+    private static Thread thread(String name, Runnable work) {
+        Thread thread = new Thread(work, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void bid(BidDesk desk, List<ChitFundSystem> funds, String[][] members,
+                     WorkloadGenerator.Zipf popularity, Random random, long deadline, SoakReport report) {
+        long interval = config.bidsPerSecond == 0 ? 0 : 1_000_000_000L * config.bidders / config.bidsPerSecond;
+        long next = System.nanoTime();
+        while (!stopping && System.nanoTime() < deadline) {
+            if (interval > 0) {
+                next += interval;
+                pause(next);
+            }
+            int f = popularity.next(random);
+            ChitFundSystem fund = funds.get(f);
+            if (fund.getCurrentMonth() > fund.getNumberOfMonths()) {
+                // Every month of this fund has been auctioned
+                continue;
+            }
+            double keen = random.nextDouble();
+            String participantId = members[f][(int) (members[f].length * keen * keen)];
+            double discount = random.nextDouble();
+            long amount = fund.getTotalAmount() - Math.round(fund.getTotalAmount() * (0.05 + 0.25 * discount * discount)
+                    / 100) * 100;
+            long start = System.nanoTime();
+            try {
+                desk.placeBid(fund.getChitFundId(), participantId, amount);
+                report.bidLatency.record(System.nanoTime() - start);
+            } catch (Exception e) {
+                report.bidLatency.record(System.nanoTime() - start);
+                report.bidErrors.incrementAndGet();
+            }
+        }
+    }
+
+    // Settles like Conduct Bidding: winner chosen and next month opened with the fund's
+    // bidders held off, then the payout queued
+    private void settle(BidDesk desk, List<ChitFundSystem> funds, WorkloadGenerator.Zipf popularity,
+                        PersistenceQueue writeQueue, PersistenceQueue.Callback callback, long deadline,
+                        SoakReport report) {
+        Random random = new Random(-1);
+        long interval = 1_000_000_000L / config.settlementsPerSecond;
+        long next = System.nanoTime();
+        ChitFundManagementSystem system = desk.getSystem();
+        while (!stopping && System.nanoTime() < deadline) {
+            next += interval;
+            pause(next);
+            ChitFundSystem fund = funds.get(popularity.next(random));
+            long start = System.nanoTime();
+            try {
+                // Queued while the fund is held, as Conduct Bidding does, so no bid for the
+                // next month is saved ahead of the settlement that opens it
+                SettlementResult result = desk.withFund(fund, () -> {
+                    SettlementResult settled = fund.isAuctionDue() ? system.conductBidding(fund.getChitFundId()) : null;
+                    if (settled != null) {
+                        writeQueue.submit(callback, AuctionEngine.settlementWrites(settled));
+                    }
+                    return settled;
+                });
+                if (result != null) {
+                    report.settleLatency.record(System.nanoTime() - start);
+                    report.settled++;
+                }
+            } catch (Exception e) {
+                report.settleLatency.record(System.nanoTime() - start);
+                report.settleErrors.incrementAndGet();
+            }
+        }
+    }
+
+    // Alternates the Display Information report and the dashboard totals; like the UI,
+    // queued writes are committed first so they show up
+    private void report(ConnectionManager connections, PersistenceQueue writeQueue, long deadline,
+                        SoakReport report) {
+        long interval = TimeUnit.SECONDS.toNanos(config.reportIntervalSeconds);
+        long next = System.nanoTime();
+        for (int run = 0; !stopping && System.nanoTime() < deadline; run++) {
+            next += interval;
+            pause(next);
+            if (stopping) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                writeQueue.flush();
+                if (run % 2 == 0) {
+                    int rendered = connections.read(c -> new ReportEngine(c.getConnection(),
+                            Integer.getInteger("chitfund.report.pageLines", ReportEngine.DEFAULT_PAGE_LINES))
+                            .render(page -> { }, () -> stopping));
+                    if (rendered >= 0) {
+                        report.reportLatency.record(System.nanoTime() - start);
+                    }
+                } else {
+                    connections.read(c -> FundStatsTable.totals(c.getConnection()));
+                    report.dashboardLatency.record(System.nanoTime() - start);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                report.reportErrors.incrementAndGet();
+            }
+        }
+    }
+
+    // Parks until the given System.nanoTime(), or until the run stops
+    private void pause(long until) {
+        long wait;
+        while (!stopping && (wait = until - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(Math.min(wait, 100_000_000L));
+        }
+    }
+
+    private void sampleHeap() {
+        long used = memory.getHeapMemoryUsage().getUsed();
+        peakHeap.accumulateAndGet(used, Math::max);
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    // The file plus its write-ahead log
+    private static long databaseBytes(File database) {
+        return database.length() + new File(database.getPath() + "-wal").length();
+    }
+
+    // Moves the write-ahead log into the file, so sizes compare like for like
+    private static void checkpoint(ConnectionManager connections) throws SQLException {
+        try (Statement stmt = connections.getWriter().getConnection().createStatement()) {
+            stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+        }
+    }
+
+    private static long count(ConnectionManager connections, String sql) throws SQLException {
+        return connections.read(c -> {
+            try (Statement stmt = c.getConnection().createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        });
+    }
+
+    public static class SoakReport {
+        Config config;
+        ChitFundLoader.LoadReport load;
+        final LatencyHistogram bidLatency = new LatencyHistogram();
+        final LatencyHistogram settleLatency = new LatencyHistogram();
+        final LatencyHistogram reportLatency = new LatencyHistogram();
+        final LatencyHistogram dashboardLatency = new LatencyHistogram();
+        final AtomicLong bidErrors = new AtomicLong();
+        final AtomicLong settleErrors = new AtomicLong();
+        final AtomicLong reportErrors = new AtomicLong();
+        // Only the settler thread writes it
+        volatile long settled;
+        long elapsedNanos;
+        long failedWrites;
+        long heapBefore;
+        long heapPeak;
+        long heapAfter;
+        long gcCount;
+        long gcMillis;
+        long bytesBefore;
+        long bytesAfter;
+        long bidsBefore;
+        long bidsAfter;
+        long settlementsBefore;
+        long settlementsAfter;
+        FundStatsTable.VerifyReport verify;
+
+        public double getBidsPerSecond() {
+            return bidLatency.getCount() * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        public double getGcPercent() {
+            return gcMillis * 1e8 / Math.max(1, elapsedNanos);
+        }
+
+        public long getBytesPerBid() {
+            return (bytesAfter - bytesBefore) / Math.max(1, bidLatency.getCount());
+        }
+
+        // Thresholds that were missed, empty if the run passed
+        public List<String> getFailures() {
+            List<String> failures = new ArrayList<>();
+            long placed = bidLatency.getCount() - bidErrors.get();
+            if (getBidsPerSecond() < config.minBidsPerSecond) {
+                failures.add(String.format("throughput %.0f bids/s below %.0f", getBidsPerSecond(),
+                        config.minBidsPerSecond));
+            }
+            checkP99(failures, "bid", bidLatency, config.maxBidP99Millis);
+            checkP99(failures, "settlement", settleLatency, config.maxSettleP99Millis);
+            checkP99(failures, "report", reportLatency, config.maxReportP99Millis);
+            checkP99(failures, "dashboard", dashboardLatency, config.maxReportP99Millis);
+            if (getGcPercent() > config.maxGcPercent) {
+                failures.add(String.format("GC took %.1f%% of the run, over %.1f%%", getGcPercent(),
+                        config.maxGcPercent));
+            }
+            if ((heapAfter - heapBefore) >> 20 > config.maxHeapGrowthMiB) {
+                failures.add("heap grew by " + ((heapAfter - heapBefore) >> 20) + " MiB, over " +
+                        config.maxHeapGrowthMiB + " MiB");
+            }
+            if (getBytesPerBid() > config.maxBytesPerBid) {
+                failures.add("database grew by " + getBytesPerBid() + " bytes per bid, over " + config.maxBytesPerBid);
+            }
+            if (bidErrors.get() + settleErrors.get() + reportErrors.get() + failedWrites > 0) {
+                failures.add(bidErrors + " bids, " + settleErrors + " settlements and " + reportErrors +
+                        " reports failed; " + failedWrites + " queued writes failed");
+            }
+            if (bidsAfter - bidsBefore != placed) {
+                failures.add((bidsAfter - bidsBefore) + " bids reached the database, " + placed + " were placed");
+            }
+            if (settlementsAfter - settlementsBefore != settled) {
+                failures.add((settlementsAfter - settlementsBefore) + " settlements reached the database, " +
+                        settled + " were made");
+            }
+            if (verify != null && !verify.isClean()) {
+                failures.add("FundStats drifted from the raw rows");
+            }
+            return failures;
+        }
+
+        private static void checkP99(List<String> failures, String name, LatencyHistogram latency, double limit) {
+            double p99 = latency.getPercentileNanos(99) / 1e6;
+            if (latency.getCount() > 0 && p99 > limit) {
+                failures.add(String.format("%s p99 %.3f ms over %.3f ms", name, p99, limit));
+            }
+        }
+
+        private static String latencyLine(String name, LatencyHistogram latency) {
+            return String.format("  %-10s %9d %9.3f %9.3f %9.3f %9.3f%n", name, latency.getCount(),
+                    latency.getPercentileNanos(50) / 1e6, latency.getPercentileNanos(90) / 1e6,
+                    latency.getPercentileNanos(99) / 1e6, latency.getMaxNanos() / 1e6);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder();
+            double seconds = elapsedNanos / 1e9;
+            out.append(String.format("Ran %.1f s with %d bidders: %,d bids (%,.0f/s), %,d settlements, %d reports%n",
+                    seconds, config.bidders, bidLatency.getCount(), getBidsPerSecond(), settled,
+                    reportLatency.getCount() + dashboardLatency.getCount()));
+            out.append(String.format("  %-10s %9s %9s %9s %9s %9s%n", "operation", "count", "p50 ms", "p90 ms",
+                    "p99 ms", "max ms"));
+            out.append(latencyLine("bid", bidLatency));
+            out.append(latencyLine("settle", settleLatency));
+            out.append(latencyLine("report", reportLatency));
+            out.append(latencyLine("dashboard", dashboardLatency));
+            out.append(String.format("Heap %d MiB before, %d MiB peak, %d MiB after; %d collections took %d ms " +
+                            "(%.2f%% of the run)%n", heapBefore >> 20, heapPeak >> 20, heapAfter >> 20, gcCount,
+                    gcMillis, getGcPercent()));
+            out.append(String.format("Database %d KiB before, %d KiB after (%d bytes per bid)%n", bytesBefore / 1024,
+                    bytesAfter / 1024, getBytesPerBid()));
+            if (verify != null) {
+                out.append(verify).append(System.lineSeparator());
+            }
+            List<String> failures = getFailures();
+            if (failures.isEmpty()) {
+                out.append("PASSED");
+            } else {
+                out.append("FAILED:");
+                for (String failure : failures) {
+                    out.append(System.lineSeparator()).append("  ").append(failure);
+                }
+            }
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package chitfund;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Random;
+
+// Generates a production-shaped chitfund database for load and soak testing. Activity
+// is skewed the way it is in branches: fund F0 is the busiest and popularity falls
+// off as a Zipf distribution over fund numbers, fund sizes vary around the mean, a
+// few members place most of a fund's bids, and bids cluster at small discounts. Each
+// fund has up to half its months already auctioned and settled, with consistent
+// payouts and dividends, and some bids in its open month.
+public class WorkloadGenerator {
+    public static final class Config {
+        int funds = 1000;
+        int membersPerFund = 20;
+        int bidsPerMonth = 25;
+        // Zipf exponent of fund popularity; 0 spreads bids evenly
+        double skew = 1.1;
+        long seed = 42L;
+
+        public static Config fromSystemProperties() {
+            Config config = new Config();
+            config.funds = Integer.getInteger("chitfund.workload.funds", config.funds);
+            config.membersPerFund = Integer.getInteger("chitfund.workload.membersPerFund", config.membersPerFund);
+            config.bidsPerMonth = Integer.getInteger("chitfund.workload.bidsPerMonth", config.bidsPerMonth);
+            config.skew = Double.parseDouble(System.getProperty("chitfund.workload.skew", String.valueOf(config.skew)));
+            config.seed = Long.getLong("chitfund.workload.seed", config.seed);
+            if (config.funds < 1 || config.membersPerFund < 2 || config.bidsPerMonth < 1 || config.skew < 0) {
+                throw new IllegalArgumentException("Workload needs at least one fund, two members per fund, " +
+                        "one bid per month and a skew of 0 or more");
+            }
+            return config;
+        }
+    }
+
+    private static final int BATCH_FUNDS = 200;
+
+    private final Config config;
+
+    public WorkloadGenerator(Config config) {
+        this.config = config;
+    }
+
+    public static String fundId(int fund) {
+        return "F" + fund;
+    }
+
+    public static String participantId(int fund, int member) {
+        return "P" + fund + "-" + member;
+    }
+
+    // Writes the dataset into a new database file
+    public GenerateReport generate(File file) throws SQLException {
+        long start = System.nanoTime();
+        GenerateReport report = new GenerateReport();
+        Random random = new Random(config.seed);
+        Zipf popularity = new Zipf(config.funds, config.skew);
+        Instant firstAuction = Instant.now().minus(config.membersPerFund * 4L * 31, ChronoUnit.DAYS);
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath())) {
+            SchemaMigrations.migrate(connection);
+            connection.setAutoCommit(false);
+            try (PreparedStatement fund = connection.prepareStatement(
+                    "INSERT INTO ChitFund (id, totalAmountPaise, numberOfMonths, currentMonth) VALUES (?, ?, ?, ?)");
+                 PreparedStatement participant = connection.prepareStatement(
+                    "INSERT INTO Participant (id, name, amountReceivedPaise) VALUES (?, ?, ?)");
+                 PreparedStatement member = connection.prepareStatement(
+                    "INSERT INTO ChitFundParticipant (chitFundId, participantId) VALUES (?, ?)");
+                 PreparedStatement bid = connection.prepareStatement(AuctionEngine.INSERT_BID);
+                 PreparedStatement settlement = connection.prepareStatement(AuctionEngine.INSERT_SETTLEMENT)) {
+                for (int f = 0; f < config.funds; f++) {
+                    int members = (int) Math.round(config.membersPerFund * Math.exp(0.4 * random.nextGaussian()));
+                    members = Math.max(5, Math.min(4 * config.membersPerFund, members));
+                    // One auction a month, one winner per member; chit values from 1 to 20 lakh,
+                    // mostly small
+                    double size = random.nextDouble();
+                    long totalAmount = 100_000_00L * (1 + (int) (19 * size * size * size));
+                    int settled = random.nextInt(members / 2 + 1);
+                    // Bids a month in this fund, averaging bidsPerMonth across funds
+                    int monthlyBids = (int) Math.min(20L * config.bidsPerMonth,
+                            Math.max(1, Math.round(config.bidsPerMonth * popularity.weight(f) * config.funds)));
+
+                    long[] received = new long[members];
+                    for (int month = 1; month <= settled + 1; month++) {
+                        // The open month has only some of its bids so far
+                        int bids = month <= settled ? monthlyBids : random.nextInt(monthlyBids + 1);
+                        int winner = -1;
+                        long winning = -1;
+                        for (int b = 0; b < bids; b++) {
+                            double keen = random.nextDouble();
+                            int bidder = (int) (members * keen * keen);
+                            double discount = random.nextDouble();
+                            long amount = totalAmount - Math.round(totalAmount * (0.05 + 0.25 * discount * discount)
+                                    / 100) * 100;
+                            bid.setString(1, fundId(f));
+                            bid.setString(2, participantId(f, bidder));
+                            bid.setLong(3, amount);
+                            bid.setInt(4, month);
+                            bid.addBatch();
+                            report.bids++;
+                            // The first of equal highest bids wins, as in BidLedger
+                            if (amount > winning) {
+                                winning = amount;
+                                winner = bidder;
+                            }
+                        }
+                        if (month <= settled) {
+                            received[winner] += winning;
+                            settlement.setString(1, fundId(f));
+                            settlement.setInt(2, month);
+                            settlement.setString(3, participantId(f, winner));
+                            settlement.setLong(4, winning);
+                            settlement.setLong(5, Math.max(0, totalAmount - winning) / members);
+                            settlement.setString(6, firstAuction.plus(31L * month, ChronoUnit.DAYS).toString());
+                            settlement.addBatch();
+                            report.settlements++;
+                        }
+                    }
+
+                    fund.setString(1, fundId(f));
+                    fund.setLong(2, totalAmount);
+                    fund.setInt(3, members);
+                    fund.setInt(4, settled + 1);
+                    fund.addBatch();
+                    for (int m = 0; m < members; m++) {
+                        participant.setString(1, participantId(f, m));
+                        participant.setString(2, "Member " + f + "-" + m);
+                        participant.setLong(3, received[m]);
+                        participant.addBatch();
+                        member.setString(1, fundId(f));
+                        member.setString(2, participantId(f, m));
+                        member.addBatch();
+                    }
+                    report.funds++;
+                    report.participants += members;
+
+                    if (f % BATCH_FUNDS == BATCH_FUNDS - 1 || f == config.funds - 1) {
+                        // Funds first, so the triggers that keep FundStats find their row
+                        fund.executeBatch();
+                        participant.executeBatch();
+                        member.executeBatch();
+                        bid.executeBatch();
+                        settlement.executeBatch();
+                        connection.commit();
+                    }
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+        report.bytes = file.length();
+        report.millis = (System.nanoTime() - start) / 1_000_000;
+        return report;
+    }
+
+    // Draws 0 .. n-1 with probability proportional to 1 / (i + 1)^skew
+    static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double skew) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1 / Math.pow(i + 1, skew);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        // Share of all draws that come out as i
+        double weight(int i) {
+            return cumulative[i] - (i == 0 ? 0 : cumulative[i - 1]);
+        }
+
+        int next(Random random) {
+            int i = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length - 1, i >= 0 ? i : -i - 1);
+        }
+    }
+
+    public static class GenerateReport {
+        int funds;
+        int participants;
+        long bids;
+        int settlements;
+        long bytes;
+        long millis;
+
+        public long getBids() {
+            return bids;
+        }
+
+        public int getSettlements() {
+            return settlements;
+        }
+
+        @Override
+        public String toString() {
+            return "Generated " + funds + " chit funds, " + participants + " participants, " + bids + " bids and " +
+                    settlements + " settlements (" + bytes / 1024 + " KiB) in " + millis + " ms";
+        }
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import chitfund.BidEventLog;
+import chitfund.ColumnarFile;
+import chitfund.ConnectionManager;
+import chitfund.EventLogProjector;
+import chitfund.Exporter;
+import chitfund.SchemaMigrations;
+
+// Full extracts of chitfund.db for audit:
+//   export [--format csv|jsonl|columnar] [--gzip] [--dir DIR] [dataset ...]
+// Datasets are funds, participants, members, bids, bid-history, payments, installments
+// and dues (all by default); each goes to DIR/<dataset>.<format>[.gz]. The default
+// format is csv and the default directory "export". chitfund.export.fetchSize and
+// chitfund.export.bufferBytes tune the cursor and the write buffer.
+//   export --read FILE
+// prints a columnar export (gzipped or not) as CSV.
+public class export {
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length == 2 && args[0].equals("--read")) {
+            System.exit(read(Paths.get(args[1])));
+        }
+
+        Exporter.Format format = Exporter.Format.CSV;
+        boolean gzip = false;
+        Path dir = Paths.get("export");
+        List<Exporter.Dataset> datasets = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--format":
+                        format = Exporter.Format.valueOf(args[++i].toUpperCase());
+                        break;
+                    case "--gzip":
+                        gzip = true;
+                        break;
+                    case "--dir":
+                        dir = Paths.get(args[++i]);
+                        break;
+                    default:
+                        datasets.add(Exporter.Dataset.parse(args[i]));
+                        break;
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Usage: export [--format csv|jsonl|columnar] [--gzip] [--dir DIR] " +
+                    "[funds|participants|members|bids|bid-history|payments|installments|dues ...]");
+            System.exit(2);
+        }
+        if (datasets.isEmpty()) {
+            datasets.addAll(Arrays.asList(Exporter.Dataset.values()));
+        }
+
+        try (ConnectionManager connections = new ConnectionManager(ConnectionManager.Config.fromSystemProperties())) {
+            SchemaMigrations.migrate(connections.getWriter().getConnection());
+            if (BidEventLog.isEnabled()) {
+                try (BidEventLog eventLog = BidEventLog.open(BidEventLog.Config.fromSystemProperties())) {
+                    System.out.println("Applied " + new EventLogProjector(eventLog).projectNow(connections.getWriter()) +
+                            " events from the event log");
+                }
+            }
+            Exporter.Format chosenFormat = format;
+            boolean chosenGzip = gzip;
+            Path chosenDir = dir;
+            List<Exporter.ExportReport> reports = connections.read(c -> {
+                try {
+                    return new Exporter(c.getConnection(),
+                            Integer.getInteger("chitfund.export.fetchSize", Exporter.DEFAULT_FETCH_SIZE),
+                            Integer.getInteger("chitfund.export.bufferBytes", Exporter.DEFAULT_BUFFER_BYTES))
+                            .export(datasets, chosenFormat, chosenGzip, chosenDir,
+                                    progress -> System.out.println("  " + progress), () -> false);
+                } catch (IOException e) {
+                    // Only SQLException gets through a read
+                    throw new UncheckedIOException(e);
+                }
+            });
+            for (Exporter.ExportReport report : reports) {
+                System.out.println(report);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static int read(Path file) {
+        try (InputStream in = open(file)) {
+            ColumnarFile.Reader reader = new ColumnarFile.Reader(in);
+            StringBuilder line = new StringBuilder();
+            System.out.println(String.join(",", reader.getNames()));
+            Object[] row;
+            while ((row = reader.next()) != null) {
+                line.setLength(0);
+                for (int i = 0; i < row.length; i++) {
+                    line.append(i == 0 ? "" : ",").append(row[i] == null ? "" : csv(row[i].toString()));
+                }
+                System.out.println(line);
+            }
+            return 0;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    private static String csv(String value) {
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 ||
+                value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        return quote ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024);
+        return file.toString().endsWith(".gz") ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+}
@@ -0,0 +1,55 @@
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import chitfund.BulkImporter;
+import chitfund.ConnectionManager;
+import chitfund.SchemaMigrations;
+
+// Bulk import into chitfund.db from CSV or JSON Lines files:
+//   importer [--source NAME] funds FILE participants FILE bids FILE payments FILE ...
+// Files are imported in the order given, so funds and participants should come before
+// the bids and payments that refer to them. --source names the bid or payment file in
+// generated import keys (default: the file name); keep it the same when re-running an
+// import.
+public class importer {
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length < 2) {
+            System.err.println("Usage: importer [--source NAME] (funds|participants|bids|payments) FILE ...");
+            System.exit(2);
+        }
+
+        int status = 0;
+        try (ConnectionManager connections = new ConnectionManager(ConnectionManager.Config.fromSystemProperties())) {
+            SchemaMigrations.migrate(connections.getWriter().getConnection());
+            BulkImporter importer = new BulkImporter(connections.getWriter().getConnection(),
+                    Integer.getInteger("chitfund.import.rowsPerStatement", BulkImporter.DEFAULT_ROWS_PER_STATEMENT),
+                    Integer.getInteger("chitfund.import.rowsPerTransaction", BulkImporter.DEFAULT_ROWS_PER_TRANSACTION));
+            importer.loadIndexes();
+
+            String source = null;
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                if (args[i].equals("--source")) {
+                    source = args[i + 1];
+                    continue;
+                }
+                BulkImporter.Kind kind = BulkImporter.Kind.valueOf(args[i].toUpperCase());
+                Path file = Paths.get(args[i + 1]);
+                BulkImporter.ImportReport report = importer.importFile(kind, file,
+                        source != null ? source : file.getFileName().toString(),
+                        progress -> System.out.println("  " + progress));
+                System.out.println(report);
+                for (String error : report.getErrors()) {
+                    System.out.println("  rejected " + error);
+                }
+                if (report.getRejected() > 0) {
+                    status = 1;
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            status = 1;
+        }
+        System.exit(status);
+    }
+}
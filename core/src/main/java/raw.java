@@ -0,0 +1,10 @@
+import javax.swing.*;
+
+import chitfund.ChitFundUI;
+
+// Main class that will be executed (must match filename)
+public class raw {
+    public static void main(String[] args) {
+        SwingUtilities.invokeLater(() -> new ChitFundUI());
+    }
+}
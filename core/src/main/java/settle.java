@@ -0,0 +1,72 @@
+import chitfund.AuctionEngine;
+import chitfund.BidEventLog;
+import chitfund.ChitFundLoader;
+import chitfund.ChitFundManagementSystem;
+import chitfund.ConnectionManager;
+import chitfund.EventLogProjector;
+import chitfund.InstallmentEngine;
+import chitfund.Metrics;
+import chitfund.SchemaMigrations;
+import chitfund.SettlementResult;
+import chitfund.SettlementScheduler;
+
+// Month-end batch entry point: settles every due chit fund in chitfund.db without
+// opening any window. Database settings are the same chitfund.db.* system properties
+// the UI uses; chitfund.settle.parallelism sets the number of settlement threads.
+// With chitfund.eventlog.dir set, pending events are applied to the tables first and
+// settlements are written to the event log like the UI does. The installment schedule
+// and every member's dues are then rebuilt; chitfund.dues.commissionPercent sets the
+// foreman's commission (5 by default). Don't run it while the UI is open.
+// chitfund.metrics.dump=true prints the operation metrics at the end.
+public class settle {
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        long start = System.nanoTime();
+        try (ConnectionManager connections = new ConnectionManager(ConnectionManager.Config.fromSystemProperties())) {
+            SchemaMigrations.migrate(connections.getWriter().getConnection());
+            BidEventLog eventLog = BidEventLog.isEnabled()
+                    ? BidEventLog.open(BidEventLog.Config.fromSystemProperties()) : null;
+            EventLogProjector projector = eventLog != null ? new EventLogProjector(eventLog) : null;
+            if (projector != null) {
+                System.out.println("Applied " + projector.projectNow(connections.getWriter()) +
+                        " events from the event log");
+            }
+
+            ChitFundManagementSystem system = new ChitFundManagementSystem();
+            ChitFundLoader.LoadReport report = connections.read(c -> new ChitFundLoader(c.getConnection(),
+                    Integer.getInteger("chitfund.load.fetchSize", ChitFundLoader.DEFAULT_FETCH_SIZE)).load(system));
+            System.out.println(report);
+
+            SettlementScheduler scheduler = new SettlementScheduler(Integer.getInteger(
+                    "chitfund.settle.parallelism", Runtime.getRuntime().availableProcessors()));
+            SettlementScheduler.RunReport run = scheduler.run(system);
+
+            long persistStart = System.nanoTime();
+            if (eventLog != null) {
+                for (SettlementResult result : run.getResults()) {
+                    eventLog.appendSettlement(result);
+                }
+                eventLog.sync();
+                projector.projectNow(connections.getWriter());
+                eventLog.close();
+            } else {
+                AuctionEngine.persist(connections.getWriter().getConnection(), run.getResults());
+            }
+            long persistMillis = (System.nanoTime() - persistStart) / 1_000_000;
+
+            for (SettlementResult result : run.getResults()) {
+                System.out.println(result);
+            }
+            System.out.println(run);
+            System.out.println("Saved " + run.getResults().size() + " settlements in " + persistMillis + " ms");
+            System.out.println(InstallmentEngine.fromSystemProperties().run(connections.getWriter().getConnection()));
+            System.out.println("Run took " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            if (Boolean.getBoolean("chitfund.metrics.dump")) {
+                System.out.print(Metrics.get().dump());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
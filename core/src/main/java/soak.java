@@ -0,0 +1,64 @@
+import java.io.File;
+import java.nio.file.Files;
+
+import chitfund.Metrics;
+import chitfund.SoakTest;
+import chitfund.WorkloadGenerator;
+
+// Soak test on a generated database:
+//   soak [--keep] [FILE]
+// Generates a skewed dataset (chitfund.workload.funds, membersPerFund, bidsPerMonth,
+// skew and seed) into FILE, or into a temporary file that is removed afterwards
+// unless --keep is given. An existing FILE is used as it is. Then bids, settlements
+// and reports run against it for chitfund.soak.durationSeconds and the results are
+// checked against the chitfund.soak.* thresholds. Exits with status 1 if any is
+// missed. chitfund.metrics.dump=true prints the operation metrics at the end.
+public class soak {
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        boolean keep = false;
+        File file = null;
+        for (String arg : args) {
+            if (arg.equals("--keep")) {
+                keep = true;
+            } else if (file == null && !arg.startsWith("-")) {
+                file = new File(arg);
+            } else {
+                System.err.println("Usage: soak [--keep] [FILE]");
+                System.exit(2);
+            }
+        }
+
+        boolean passed = false;
+        boolean temporary = file == null;
+        try {
+            if (temporary) {
+                file = Files.createTempFile("chitfund-soak-", ".db").toFile();
+                Files.delete(file.toPath());
+            }
+            if (!file.exists()) {
+                System.out.println(new WorkloadGenerator(WorkloadGenerator.Config.fromSystemProperties())
+                        .generate(file));
+            }
+            SoakTest.SoakReport report = new SoakTest(SoakTest.Config.fromSystemProperties()).run(file);
+            System.out.println(report);
+            passed = report.getFailures().isEmpty();
+            if (Boolean.getBoolean("chitfund.metrics.dump")) {
+                System.out.print(Metrics.get().dump());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (temporary && file != null) {
+                if (keep) {
+                    System.out.println("Kept " + file);
+                } else {
+                    for (String suffix : new String[] {"", "-wal", "-shm"}) {
+                        new File(file.getPath() + suffix).delete();
+                    }
+                }
+            }
+        }
+        System.exit(passed ? 0 : 1);
+    }
+}
@@ -0,0 +1,55 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import chitfund.BidEventLog;
+import chitfund.ConnectionManager;
+import chitfund.EventLogProjector;
+import chitfund.FundStatsTable;
+import chitfund.SchemaMigrations;
+
+// Checks the FundStats running totals, and each participant's amount received,
+// against totals recomputed from the Bid and Settlement rows, and prints any drift.
+// Exits with status 1 if there is some. "verify repair" rebuilds FundStats from the
+// raw rows first; participant amounts are only reported, since payouts made before
+// settlements were recorded have no rows to rebuild them from. Database and event
+// log settings are the same chitfund.* system properties the UI uses. Don't run it
+// while the UI is open.
+public class verify {
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        boolean repair = args.length > 0 && "repair".equals(args[0]);
+        try (ConnectionManager connections = new ConnectionManager(ConnectionManager.Config.fromSystemProperties())) {
+            SchemaMigrations.migrate(connections.getWriter().getConnection());
+            if (BidEventLog.isEnabled()) {
+                try (BidEventLog eventLog = BidEventLog.open(BidEventLog.Config.fromSystemProperties())) {
+                    System.out.println("Applied " + new EventLogProjector(eventLog).projectNow(connections.getWriter()) +
+                            " events from the event log");
+                }
+            }
+
+            if (repair) {
+                Connection connection = connections.getWriter().getConnection();
+                connection.setAutoCommit(false);
+                try (Statement stmt = connection.createStatement()) {
+                    System.out.println("Rebuilt FundStats for " + FundStatsTable.rebuild(stmt) + " chit funds");
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            }
+
+            FundStatsTable.VerifyReport report = connections.read(c -> FundStatsTable.verify(c.getConnection()));
+            System.out.println(report);
+            if (!report.isClean()) {
+                System.exit(1);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
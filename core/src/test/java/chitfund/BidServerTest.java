@@ -0,0 +1,75 @@
+package chitfund;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BidServerTest {
+    private BidServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        ChitFundManagementSystem system = new ChitFundManagementSystem();
+        // F1 is in its last month; F2 has run both of its months
+        system.addChitFund(new ChitFundSystem("F1", 100_000_00L, 2, 2));
+        system.addChitFund(new ChitFundSystem("F2", 100_000_00L, 2, 3));
+        for (String fund : new String[] {"F1", "F2"}) {
+            Participant member = new Participant("P-" + fund, "Member of " + fund);
+            system.addParticipant(member);
+            system.addParticipantToChitFund(fund, member);
+        }
+        BidDesk desk = new BidDesk(system, BidDesk.DEFAULT_STRIPES, BidDesk.NO_JOURNAL);
+        server = new BidServer(desk, new InetSocketAddress("127.0.0.1", 0), 2);
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    @Test
+    void acceptsBidInOpenMonth() throws IOException {
+        assertEquals(201, post("fund=F1&participant=P-F1&amount=90000.00"));
+    }
+
+    @Test
+    void rejectsBidOnCompleteFundWithConflict() throws IOException {
+        assertEquals(409, post("fund=F2&participant=P-F2&amount=90000.00"));
+    }
+
+    @Test
+    void rejectsNonMemberWithNotFound() throws IOException {
+        assertEquals(404, post("fund=F1&participant=P-F2&amount=90000.00"));
+        assertEquals(404, post("fund=F9&participant=P-F1&amount=90000.00"));
+    }
+
+    @Test
+    void rejectsBadAmount() throws IOException {
+        assertEquals(400, post("fund=F1&participant=P-F1&amount=lots"));
+    }
+
+    private int post(String form) throws IOException {
+        InetSocketAddress address = server.getAddress();
+        URL url = new URL("http://127.0.0.1:" + address.getPort() + "/bids");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package chitfund;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BulkImporterTest {
+    @TempDir
+    Path dir;
+
+    private Connection connection;
+    private BulkImporter importer;
+
+    @BeforeEach
+    void open() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        SchemaMigrations.migrate(connection);
+        importer = new BulkImporter(connection, 10, 100);
+        importer.loadIndexes();
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void rejectsFundsWithoutPositiveMonthsOrTotal() throws IOException, SQLException {
+        BulkImporter.ImportReport report = importFunds(
+                "id,totalAmount,numberOfMonths",
+                "F1,100000.00,10",
+                "F2,100000.00,0",
+                "F3,100000.00,-4",
+                "F4,0,10",
+                "F5,-500.00,10");
+
+        assertEquals(4, report.getRejected());
+        assertTrue(report.getErrors().get(0).contains("number of months must be positive"));
+        assertTrue(report.getErrors().get(2).contains("total amount must be positive"));
+        assertEquals(List.of("F1"), rows("SELECT id FROM ChitFund"));
+    }
+
+    @Test
+    void createChitFundTermsMustBePositive() {
+        ChitFundSystem.checkTerms(1, 1);
+        assertThrows(IllegalArgumentException.class, () -> ChitFundSystem.checkTerms(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> ChitFundSystem.checkTerms(0, 12));
+    }
+
+    private BulkImporter.ImportReport importFunds(String... lines) throws IOException, SQLException {
+        Path file = dir.resolve("funds.csv");
+        Files.write(file, List.of(lines));
+        return importer.importFile(BulkImporter.Kind.FUNDS, file, "funds.csv", null);
+    }
+
+    private List<String> rows(String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                rows.add(rs.getString(1));
+            }
+        }
+        return rows;
+    }
+}
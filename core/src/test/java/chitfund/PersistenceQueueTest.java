@@ -0,0 +1,91 @@
+package chitfund;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PersistenceQueueTest {
+    private static final String INSERT = "INSERT INTO Note (text) VALUES (?)";
+
+    private Connection connection;
+    private CachedConnection writer;
+    private PersistenceQueue queue;
+    private final List<SQLException> errors = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void open() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE Note (text TEXT NOT NULL)");
+        }
+        writer = new CachedConnection(connection, 16);
+        queue = new PersistenceQueue(writer, PersistenceQueue.DurabilityMode.GROUP_COMMIT, 64, 16, 5, Runnable::run);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        queue.close();
+        writer.close();
+        connection.close();
+    }
+
+    @Test
+    void failingTaskFailsOnlyItsOwnUnit() throws SQLException {
+        PersistenceQueue.Callback record = error -> {
+            if (error != null) {
+                errors.add(error);
+            }
+        };
+        queue.submit(record, PersistenceQueue.write(INSERT, "before"));
+        queue.submit(record, cached -> {
+            throw new IllegalStateException("task blew up");
+        });
+        queue.submit(record, PersistenceQueue.write(INSERT, "after"));
+        assertTimeoutPreemptively(Duration.ofSeconds(10), queue::flush);
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).getCause() instanceof IllegalStateException);
+        assertEquals(1, queue.getFailedCount());
+        assertEquals(2, count());
+    }
+
+    @Test
+    void failingTaskIsRolledBackAndWriterCarriesOn() throws SQLException {
+        SQLException[] result = new SQLException[2];
+        queue.submit(error -> result[0] = error, cached -> {
+            cached.prepare(INSERT).setString(1, "half done");
+            cached.prepare(INSERT).executeUpdate();
+            throw new NullPointerException();
+        });
+        assertTimeoutPreemptively(Duration.ofSeconds(10), queue::flush);
+        queue.submit(error -> result[1] = error, PersistenceQueue.write(INSERT, "later"));
+        assertTimeoutPreemptively(Duration.ofSeconds(10), queue::flush);
+
+        assertNotNull(result[0]);
+        assertNull(result[1]);
+        assertEquals(1, count());
+        assertTrue(connection.getAutoCommit());
+    }
+
+    private int count() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Note")) {
+            return rs.getInt(1);
+        }
+    }
+}
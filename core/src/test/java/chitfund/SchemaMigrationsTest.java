@@ -0,0 +1,70 @@
+package chitfund;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SchemaMigrationsTest {
+    private Connection connection;
+
+    @BeforeEach
+    void open() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void membershipIsBackfilledFromBidsOnly() throws SQLException {
+        // The tables as they were before the schema was versioned
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE ChitFund (id TEXT PRIMARY KEY, totalAmount REAL, numberOfMonths INTEGER)");
+            stmt.execute("CREATE TABLE Participant (id TEXT PRIMARY KEY, name TEXT, amountReceived REAL)");
+            stmt.execute("CREATE TABLE Bid (id INTEGER PRIMARY KEY AUTOINCREMENT, chitFundId TEXT, " +
+                    "participantId TEXT, bidAmount REAL)");
+            stmt.execute("INSERT INTO ChitFund VALUES ('F1', 100000, 10), ('F2', 200000, 20)");
+            stmt.execute("INSERT INTO Participant VALUES ('P1', 'Asha', 0), ('P2', 'Ravi', 0), ('P3', 'Meena', 0)");
+            stmt.execute("INSERT INTO Bid (chitFundId, participantId, bidAmount) VALUES " +
+                    "('F1', 'P1', 90000), ('F1', 'P1', 91000), ('F2', 'P2', 180000)");
+        }
+
+        SchemaMigrations.migrate(connection);
+
+        assertEquals(List.of("F1/P1", "F2/P2"),
+                rows("SELECT chitFundId || '/' || participantId FROM ChitFundParticipant ORDER BY 1"));
+        // Left in place for the operator to attach
+        assertEquals(List.of("P1", "P2", "P3"), rows("SELECT id FROM Participant ORDER BY id"));
+    }
+
+    @Test
+    void scheduleDividendIsNamedNetOfCommission() throws SQLException {
+        assertEquals(SchemaMigrations.CURRENT_VERSION, SchemaMigrations.migrate(connection));
+        assertEquals(List.of("netDividendPerMemberPaise"),
+                rows("SELECT name FROM pragma_table_info('Installment') WHERE name LIKE '%ividend%'"));
+        assertEquals(List.of("netDividendPerMemberPaise"),
+                rows("SELECT name FROM pragma_table_info('InstallmentArchive') WHERE name LIKE '%ividend%'"));
+    }
+
+    private List<String> rows(String sql) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                rows.add(rs.getString(1));
+            }
+        }
+        return rows;
+    }
+}